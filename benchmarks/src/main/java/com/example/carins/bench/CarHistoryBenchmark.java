@@ -0,0 +1,32 @@
+package com.example.carins.bench;
+
+import com.example.carins.web.CarController;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CarHistoryBenchmark {
+
+    private CarController carController;
+
+    @Setup(Level.Trial)
+    public void resolveBeans(FleetState fleet) {
+        carController = fleet.bean(CarController.class);
+    }
+
+    @Benchmark
+    public Object fullHistory(FleetState fleet, FleetState.Cursor cursor) {
+        return carController.getCarHistory(fleet.carId(cursor.next()), null, null, null).getBody();
+    }
+
+    @Benchmark
+    public Object firstHistoryPage(FleetState fleet, FleetState.Cursor cursor) {
+        return carController.getCarHistory(fleet.carId(cursor.next()), null, 2, null).getBody();
+    }
+}
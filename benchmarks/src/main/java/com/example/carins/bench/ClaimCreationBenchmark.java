@@ -0,0 +1,44 @@
+package com.example.carins.bench;
+
+import com.example.carins.service.ClaimService;
+import com.example.carins.service.ClaimSubmissionService;
+import com.example.carins.web.dto.ClaimDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ClaimCreationBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("250.00");
+
+    private ClaimService claimService;
+    private ClaimSubmissionService claimSubmissionService;
+
+    @Setup(Level.Trial)
+    public void resolveBeans(FleetState fleet) {
+        claimService = fleet.bean(ClaimService.class);
+        claimSubmissionService = fleet.bean(ClaimSubmissionService.class);
+    }
+
+    @Benchmark
+    public long createClaim(FleetState fleet, FleetState.Cursor cursor) {
+        int sample = cursor.next();
+        long carId = fleet.carId(sample);
+        return claimService.createClaim(carId, new ClaimDto(carId, fleet.date(sample), "Benchmark claim", AMOUNT));
+    }
+
+    // what the client waits for with async=true; the scheduled consumer stores the queue in the background
+    @Benchmark
+    public String submitClaim(FleetState fleet, FleetState.Cursor cursor) {
+        int sample = cursor.next();
+        long carId = fleet.carId(sample);
+        return claimSubmissionService.submit(carId, new ClaimDto(carId, fleet.date(sample), "Benchmark claim", AMOUNT));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.carins.bench;
+
+import com.example.carins.CarInsuranceApplication;
+import com.example.carins.service.PolicyIntervalIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load over HTTP, comparing Tomcat on its platform thread pool with Tomcat on virtual threads.
+ * One operation is a burst of {@code concurrency} simultaneous history requests, so requests/s = score * concurrency.
+ * Failed responses (e.g. 503 from the connection bulkhead) abort the iteration rather than being counted as throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ConcurrentLoadBenchmark {
+
+    private static final int CARS = 10_000;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"50", "500", "2000"})
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private URI[] uris;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(CarInsuranceApplication.class)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.port=0",
+                        "server.tomcat.accept-count=10000",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        SyntheticDataset.load(jdbcTemplate, CARS, 42L);
+        long firstCarId = SyntheticDataset.firstCarId(jdbcTemplate);
+        context.getBean(PolicyIntervalIndex.class).rebuild();
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        SplittableRandom random = new SplittableRandom(7L);
+        uris = new URI[1 << 12];
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = URI.create("http://localhost:" + port + "/api/cars/" + (firstCarId + random.nextInt(CARS)) + "/history");
+        }
+
+        // the client side always uses virtual threads so only the server's threading model differs between runs
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        client.close();
+        clientExecutor.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int burst() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uris[next++ & (uris.length - 1)])
+                    .timeout(Duration.ofSeconds(30))
+                    .GET().build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            int status = response.join().statusCode();
+            if (status != 200) throw new IllegalStateException("Unexpected status " + status);
+            ok++;
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.carins.bench;
+
+import com.example.carins.service.CoverageGapScheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full coverage sweep over every policy of the dataset (every fifth car has a gap between its policies).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CoverageGapBenchmark {
+
+    private CoverageGapScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void resolveBeans(FleetState fleet) {
+        scheduler = fleet.bean(CoverageGapScheduler.class);
+    }
+
+    @Benchmark
+    public int fullSweep() {
+        return scheduler.detectAnomalies();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.carins.bench;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.service.CoverageSnapshotService;
+import com.example.carins.web.ReportController;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Cars insured on date D": one existsActiveOnDate query per car against building the snapshot with a single scan,
+ * and the count / page / diff endpoints once the snapshots of both dates are cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CoverageSnapshotBenchmark {
+
+    private static final LocalDate DATE = SyntheticDataset.FIRST_POLICY_START.plusMonths(9);
+    private static final LocalDate LATER = DATE.plusMonths(6);
+
+    private InsurancePolicyRepository insurancePolicyRepository;
+    private CoverageSnapshotService coverageSnapshotService;
+    private ReportController reportController;
+    private long firstCarId;
+    private int cars;
+
+    @Setup(Level.Trial)
+    public void resolveBeans(FleetState fleet) {
+        insurancePolicyRepository = fleet.bean(InsurancePolicyRepository.class);
+        coverageSnapshotService = fleet.bean(CoverageSnapshotService.class);
+        reportController = fleet.bean(ReportController.class);
+        firstCarId = fleet.firstCarId;
+        cars = fleet.cars;
+        coverageSnapshotService.snapshot(LATER);
+    }
+
+    @Benchmark
+    public int queryPerCar() {
+        int insured = 0;
+        for (long carId = firstCarId; carId < firstCarId + cars; carId++) {
+            if (insurancePolicyRepository.existsActiveOnDate(carId, DATE)) insured++;
+        }
+        return insured;
+    }
+
+    @Benchmark
+    public int buildSnapshot() {
+        coverageSnapshotService.invalidate(DATE, DATE);
+        return coverageSnapshotService.snapshot(DATE).insuredCars().size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object countCached() {
+        return reportController.coverageSnapshot(DATE.toString()).getBody();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object pageCached() {
+        return reportController.coverageSnapshotCars(DATE.toString(), firstCarId + cars / 2, 1000).getBody();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object diffCached() {
+        return reportController.coverageSnapshotDiff(DATE.toString(), LATER.toString(), 0, 1000).getBody();
+    }
+}
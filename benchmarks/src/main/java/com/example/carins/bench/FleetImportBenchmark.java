@@ -0,0 +1,60 @@
+package com.example.carins.bench;
+
+import com.example.carins.service.FleetImportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import of a fresh {@code rows}-line CSV file (one owner per 10 cars, one policy per car) into the loaded fleet;
+ * rows per second is {@code rows} divided by the score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FleetImportBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private FleetImportService importService;
+    private Path file;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void resolveBeans(FleetState fleet) {
+        importService = fleet.bean(FleetImportService.class);
+    }
+
+    // new VINs and a new file name every time, so neither the checkpoint nor the VIN check skips anything
+    @Setup(Level.Invocation)
+    public void writeFile() throws IOException {
+        invocation++;
+        file = Files.createTempFile("fleet-import-bench", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("vin,make,model,yearOfManufacture,ownerName,ownerEmail,provider,startDate,endDate\n");
+            for (int i = 0; i < rows; i++) {
+                int owner = i / 10;
+                out.write("IMP" + invocation + "-" + i + ",Dacia,Logan," + (2010 + i % 15) + ",Owner " + owner
+                        + ",owner" + invocation + "-" + owner + "@example.com,Allianz,2026-01-01,2026-12-31\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public FleetImportService.Result importCsv() throws IOException {
+        return importService.importFile(file);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.carins.bench;
+
+import com.example.carins.CarInsuranceApplication;
+import com.example.carins.service.PolicyIntervalIndex;
+import com.example.carins.service.VinIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Boots the application without a web server on a private in-memory database loaded with {@code cars} synthetic cars.
+ */
+@State(Scope.Benchmark)
+public class FleetState {
+
+    @Param({"1000", "100000", "1000000"})
+    public int cars;
+
+    public ConfigurableApplicationContext context;
+    public long firstCarId;
+
+    // pre-drawn lookups so the benchmarks measure the service, not the random generator
+    private static final int SAMPLES = 1 << 16;
+    private long[] carIds;
+    private LocalDate[] dates;
+    private String[] vins;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(CarInsuranceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        SyntheticDataset.load(jdbcTemplate, cars, 42L);
+        firstCarId = SyntheticDataset.firstCarId(jdbcTemplate);
+        context.getBean(PolicyIntervalIndex.class).rebuild();
+        context.getBean(VinIndex.class).rebuild();
+
+        SplittableRandom random = new SplittableRandom(7L);
+        carIds = new long[SAMPLES];
+        dates = new LocalDate[SAMPLES];
+        vins = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            carIds[i] = firstCarId + random.nextInt(cars);
+            dates[i] = SyntheticDataset.FIRST_POLICY_START.plusDays(random.nextInt(3 * 365));
+            vins[i] = SyntheticDataset.vin(carIds[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public long carId(int sample) {
+        return carIds[sample & (SAMPLES - 1)];
+    }
+
+    public LocalDate date(int sample) {
+        return dates[sample & (SAMPLES - 1)];
+    }
+
+    public String vin(int sample) {
+        return vins[sample & (SAMPLES - 1)];
+    }
+
+    /**
+     * Per-thread position in the pre-drawn samples.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        public int next() {
+            return next++;
+        }
+    }
+}
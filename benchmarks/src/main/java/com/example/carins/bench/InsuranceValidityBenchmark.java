@@ -0,0 +1,37 @@
+package com.example.carins.bench;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.service.CarService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class InsuranceValidityBenchmark {
+
+    private CarService carService;
+    private InsurancePolicyRepository insurancePolicyRepository;
+
+    @Setup(Level.Trial)
+    public void resolveBeans(FleetState fleet) {
+        carService = fleet.bean(CarService.class);
+        insurancePolicyRepository = fleet.bean(InsurancePolicyRepository.class);
+    }
+
+    @Benchmark
+    public boolean carServiceIsInsuranceValid(FleetState fleet, FleetState.Cursor cursor) {
+        int sample = cursor.next();
+        return carService.isInsuranceValid(fleet.carId(sample), fleet.date(sample));
+    }
+
+    @Benchmark
+    public boolean repositoryExistsActiveOnDate(FleetState fleet, FleetState.Cursor cursor) {
+        int sample = cursor.next();
+        return insurancePolicyRepository.existsActiveOnDate(fleet.carId(sample), fleet.date(sample));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.carins.bench;
+
+import com.example.carins.service.PolicyExpiryScheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full expiry scan from an empty checkpoint (every expired policy of the dataset), then an incremental run
+ * right after it, which should find nothing new.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PolicyExpiryBenchmark {
+
+    private PolicyExpiryScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void resolveBeans(FleetState fleet) {
+        scheduler = fleet.bean(PolicyExpiryScheduler.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetCheckpoint() {
+        scheduler.resetCheckpoint();
+    }
+
+    @Benchmark
+    public int fullScan() {
+        return scheduler.processExpiredPolicies();
+    }
+
+    @Benchmark
+    public int incrementalRun() {
+        scheduler.processExpiredPolicies();
+        return scheduler.processExpiredPolicies();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.carins.bench;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic fleet: one owner per 10 cars, two consecutive yearly policies per car (every fifth car
+ * has a gap between them) and one claim per car, with its claim rollup. Rows are written with JDBC batches, bypassing JPA.
+ */
+final class SyntheticDataset {
+
+    static final LocalDate FIRST_POLICY_START = LocalDate.of(2023, 1, 1);
+
+    private static final int BATCH = 10_000;
+    private static final String[] MAKES = {"Dacia", "VW", "Skoda", "Toyota", "Ford"};
+    private static final String[] PROVIDERS = {"Allianz", "Groupama", "Omniasig", "Generali"};
+
+    private SyntheticDataset() {}
+
+    static String vin(long carId) {
+        return "BENCH" + carId;
+    }
+
+    static void load(JdbcTemplate jdbcTemplate, int cars, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long firstOwnerId = nextId(jdbcTemplate, "owner");
+        long firstCarId = nextId(jdbcTemplate, "car");
+        int owners = Math.max(1, cars / 10);
+
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < owners; i++) {
+            rows.add(new Object[]{firstOwnerId + i, "Owner " + i, "owner" + i + "@example.com"});
+            rows = flush(jdbcTemplate, "insert into owner (id, name, email) values (?, ?, ?)", rows, false);
+        }
+        flush(jdbcTemplate, "insert into owner (id, name, email) values (?, ?, ?)", rows, true);
+
+        rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < cars; i++) {
+            rows.add(new Object[]{firstCarId + i, vin(firstCarId + i), MAKES[i % MAKES.length], "Model " + (i % 7),
+                    2005 + random.nextInt(20), firstOwnerId + (i % owners)});
+            rows = flush(jdbcTemplate, "insert into car (id, vin, make, model, year_of_manufacture, owner_id) values (?, ?, ?, ?, ?, ?)", rows, false);
+        }
+        flush(jdbcTemplate, "insert into car (id, vin, make, model, year_of_manufacture, owner_id) values (?, ?, ?, ?, ?, ?)", rows, true);
+
+        String policySql = "insert into insurancepolicy (car_id, provider, start_date, end_date) values (?, ?, ?, ?)";
+        rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < cars; i++) {
+            LocalDate start = FIRST_POLICY_START.plusDays(random.nextInt(365));
+            LocalDate end = start.plusYears(1).minusDays(1);
+            LocalDate renewal = i % 5 == 0 ? end.plusDays(30) : end.plusDays(1);
+            rows.add(new Object[]{firstCarId + i, PROVIDERS[i % PROVIDERS.length], Date.valueOf(start), Date.valueOf(end)});
+            rows.add(new Object[]{firstCarId + i, PROVIDERS[(i + 1) % PROVIDERS.length], Date.valueOf(renewal), Date.valueOf(renewal.plusYears(1).minusDays(1))});
+            rows = flush(jdbcTemplate, policySql, rows, false);
+        }
+        flush(jdbcTemplate, policySql, rows, true);
+
+        String claimSql = "insert into claim (id, car_id, claim_date, description, amount) values (next value for claim_seq, ?, ?, ?, ?)";
+        rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < cars; i++) {
+            rows.add(new Object[]{firstCarId + i, Date.valueOf(FIRST_POLICY_START.plusDays(random.nextInt(700))),
+                    "Synthetic claim " + i, BigDecimal.valueOf(50 + random.nextInt(5000))});
+            rows = flush(jdbcTemplate, claimSql, rows, false);
+        }
+        flush(jdbcTemplate, claimSql, rows, true);
+
+        // the claims bypass ClaimService, so their rollup rows are built here in one pass
+        jdbcTemplate.update("insert into claim_rollup (car_id, claim_month, claim_count, total_amount) " +
+                "select car_id, cast(date_trunc('MONTH', claim_date) as date), count(*), sum(amount) from claim " +
+                "where car_id >= ? group by car_id, cast(date_trunc('MONTH', claim_date) as date)", firstCarId);
+
+        // keep identity columns ahead of the explicit ids
+        jdbcTemplate.execute("alter table owner alter column id restart with " + (firstOwnerId + owners));
+        jdbcTemplate.execute("alter table car alter column id restart with " + (firstCarId + cars));
+    }
+
+    static long firstCarId(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select min(id) from car where vin like 'BENCH%'", Long.class);
+    }
+
+    private static long nextId(JdbcTemplate jdbcTemplate, String table) {
+        Long max = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    private static List<Object[]> flush(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows, boolean force) {
+        if (rows.isEmpty() || (!force && rows.size() < BATCH)) return rows;
+        jdbcTemplate.batchUpdate(sql, rows);
+        return new ArrayList<>(BATCH);
+    }
+}
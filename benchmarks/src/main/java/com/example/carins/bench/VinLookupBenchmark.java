@@ -0,0 +1,40 @@
+package com.example.carins.bench;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.service.VinIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VIN to car id resolution: the primitive in-memory index against the unique-index query it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class VinLookupBenchmark {
+
+    private VinIndex vinIndex;
+    private CarRepository carRepository;
+
+    @Setup(Level.Trial)
+    public void resolveBeans(FleetState fleet) {
+        vinIndex = fleet.bean(VinIndex.class);
+        carRepository = fleet.bean(CarRepository.class);
+    }
+
+    @Benchmark
+    public OptionalLong vinIndexFind(FleetState fleet, FleetState.Cursor cursor) {
+        return vinIndex.find(fleet.vin(cursor.next()));
+    }
+
+    @Benchmark
+    public Optional<Long> repositoryFindIdByVin(FleetState fleet, FleetState.Cursor cursor) {
+        return carRepository.findIdByVin(fleet.vin(cursor.next()));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.carins.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Wraps every Hikari pool in a {@link ConnectionBulkheadDataSource}. Concurrency defaults to the pool size,
+ * the bounded wait queue and timeout come from {@code carins.datasource.bulkhead.*}.
+ */
+public class DataSourceBulkheadPostProcessor implements BeanPostProcessor {
+
+    private final Environment environment;
+
+    public DataSourceBulkheadPostProcessor(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource pool)
+                || !environment.getProperty("carins.datasource.bulkhead.enabled", Boolean.class, true)) {
+            return bean;
+        }
+        int maxConcurrent = environment.getProperty("carins.datasource.bulkhead.max-concurrent", Integer.class, pool.getMaximumPoolSize());
+        int maxWaiting = environment.getProperty("carins.datasource.bulkhead.max-waiting", Integer.class, 1000);
+        Duration timeout = environment.getProperty("carins.datasource.bulkhead.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+        return new ConnectionBulkheadDataSource(pool, maxConcurrent, maxWaiting, timeout);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.carins.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    public static DataSourceBulkheadPostProcessor dataSourceBulkheadPostProcessor(Environment environment) {
+        return new DataSourceBulkheadPostProcessor(environment);
+    }
+
+    @Bean
+    public MeterBinder dataSourceBulkheadMetrics(Map<String, DataSource> dataSources) {
+        return registry -> dataSources.forEach((name, dataSource) -> {
+            if (dataSource instanceof ConnectionBulkheadDataSource bulkhead) {
+                Gauge.builder("carins.datasource.bulkhead.active", bulkhead, ConnectionBulkheadDataSource::getActive)
+                        .tag("datasource", name).register(registry);
+                Gauge.builder("carins.datasource.bulkhead.waiting", bulkhead, ConnectionBulkheadDataSource::getWaiting)
+                        .tag("datasource", name).register(registry);
+                FunctionCounter.builder("carins.datasource.bulkhead.rejected", bulkhead, ConnectionBulkheadDataSource::getRejected)
+                        .tag("datasource", name).register(registry);
+            }
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.carins.config;
+
+import com.example.carins.service.LoggingNotificationSender;
+import com.example.carins.service.NotificationSender;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(NotificationProperties.class)
+public class NotificationConfig {
+
+    // Stand-in until a mail/SMS gateway is wired; any other NotificationSender bean replaces it
+    @Bean
+    @ConditionalOnMissingBean(NotificationSender.class)
+    public NotificationSender loggingNotificationSender() {
+        return new LoggingNotificationSender();
+    }
+}
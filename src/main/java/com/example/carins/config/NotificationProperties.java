@@ -0,0 +1,24 @@
+package com.example.carins.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the upcoming-expiry notification pipeline ({@code carins.notifications.*}).
+ *
+ * @param horizonDays  policies ending within this many days from today are notified
+ * @param batchSize    owners per call to the sender
+ * @param maxPerRun    notices handled by one dispatch run at most; the rest waits for the next run
+ * @param maxAttempts  delivery attempts before a notice is marked FAILED
+ * @param retryBackoff delay before the first retry, doubled on every further attempt
+ * @param leaseDuration how long one node may dispatch before the lease has to be renewed (once per batch)
+ */
+@ConfigurationProperties("carins.notifications")
+public record NotificationProperties(@DefaultValue("30") int horizonDays,
+                                     @DefaultValue("100") int batchSize,
+                                     @DefaultValue("10000") int maxPerRun,
+                                     @DefaultValue("5") int maxAttempts,
+                                     @DefaultValue("1m") Duration retryBackoff,
+                                     @DefaultValue("5m") Duration leaseDuration) {}
@@ -0,0 +1,54 @@
+package com.example.carins.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Primary and replica pools behind one routing {@link DataSource}. The primary comes from {@code spring.datasource.*},
+ * the replica from {@code carins.datasource.replica.*} (url, username and password default to the primary's).
+ * Both pools are plain Hikari beans, so each gets its own connection bulkhead.
+ */
+@Configuration
+@ConditionalOnProperty(name = "carins.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        return pool;
+    }
+
+    @Bean
+    @ConfigurationProperties("carins.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(environment.getProperty("carins.datasource.replica.url", properties.determineUrl()))
+                .username(environment.getProperty("carins.datasource.replica.username", properties.determineUsername()))
+                .password(environment.getProperty("carins.datasource.replica.password", properties.determinePassword()))
+                .build();
+        pool.setPoolName("replica");
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.carins.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends connections of read-only transactions to the replica pool and everything else (writes, work outside a
+ * transaction, Flyway) to the primary. Must sit behind a {@link LazyConnectionDataSourceProxy}, so the connection
+ * is only fetched at the first statement, once the transaction's read-only flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    // transaction resource marking a read-only transaction that must still read from the primary
+    private static final String PINNED_TO_PRIMARY = ReadWriteRoutingDataSource.class.getName() + ".PINNED_TO_PRIMARY";
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentTarget();
+    }
+
+    public static Target currentTarget() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !TransactionSynchronizationManager.hasResource(PINNED_TO_PRIMARY) ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    /**
+     * Keeps the current read-only transaction on the primary. Only effective before its first statement.
+     */
+    public static void pinToPrimary() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(PINNED_TO_PRIMARY)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(PINNED_TO_PRIMARY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PINNED_TO_PRIMARY);
+            }
+        });
+    }
+}
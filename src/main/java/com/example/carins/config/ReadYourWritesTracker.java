@@ -0,0 +1,64 @@
+package com.example.carins.config;
+
+import com.example.carins.service.CarsWrittenEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-your-writes over an asynchronously updated replica: for {@code carins.datasource.replica.max-lag} after a
+ * write to a car commits, read-only transactions about that car are pinned to the primary. Tracked per node, so a
+ * client that must see its write on another node needs sticky routing. Does nothing while the replica is disabled.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    // entries older than the lag are only swept once the map grows past this
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    private final boolean enabled;
+    private final long maxLagNanos;
+    private final Map<Long, Long> lastWriteByCar = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(@Value("${carins.datasource.replica.enabled:false}") boolean enabled,
+                                 @Value("${carins.datasource.replica.max-lag:5s}") Duration maxLag) {
+        this.enabled = enabled;
+        this.maxLagNanos = maxLag.toNanos();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarsWritten(CarsWrittenEvent event) {
+        if (enabled) {
+            record(event.carIds());
+        }
+    }
+
+    public boolean recentlyWritten(Long carId) {
+        Long writtenAt = lastWriteByCar.get(carId);
+        return writtenAt != null && System.nanoTime() - writtenAt < maxLagNanos;
+    }
+
+    /**
+     * Call at the start of a read-only transaction about the car, before its first query.
+     */
+    public void readingCar(Long carId) {
+        if (enabled && recentlyWritten(carId)) {
+            ReadWriteRoutingDataSource.pinToPrimary();
+        }
+    }
+
+    private void record(Collection<Long> carIds) {
+        long now = System.nanoTime();
+        for (Long carId : carIds) {
+            lastWriteByCar.put(carId, now);
+        }
+        if (lastWriteByCar.size() > SWEEP_THRESHOLD) {
+            lastWriteByCar.values().removeIf(writtenAt -> now - writtenAt >= maxLagNanos);
+        }
+    }
+}
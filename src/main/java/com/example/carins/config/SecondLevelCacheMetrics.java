@@ -0,0 +1,48 @@
+package com.example.carins.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hit ratio per second-level cache region and for the query cache, as {@code carins.cache.hit.ratio}.
+ * Raw hit/miss/put counters per region are already published by Hibernate's own metrics binder.
+ */
+@Component
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+
+    public SecondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            Gauge.builder("carins.cache.hit.ratio", statistics, stats -> regionHitRatio(stats, region))
+                    .tag("region", region)
+                    .description("Second-level cache hits / (hits + misses) since startup")
+                    .register(registry);
+        }
+        Gauge.builder("carins.cache.hit.ratio", statistics,
+                        stats -> ratio(stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount()))
+                .tag("region", "query-results")
+                .register(registry);
+    }
+
+    private static double regionHitRatio(Statistics statistics, String region) {
+        CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+        return regionStatistics == null ? 0.0 : ratio(regionStatistics.getHitCount(), regionStatistics.getMissCount());
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.carins.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final QueryCountInterceptor queryCountInterceptor;
+
+    public WebConfig(QueryCountInterceptor queryCountInterceptor) {
+        this.queryCountInterceptor = queryCountInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(queryCountInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -1,16 +1,21 @@
 package com.example.carins.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "car")
 public class Car {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @NotBlank @Size(min = 5, max = 32)
+    @Column(nullable = false, unique = true, length = 32)
     private String vin;
 
     private String make;
@@ -20,6 +25,10 @@ public class Car {
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Owner owner;
 
+    // Bumped whenever a policy is added to the car, see InsurancePolicyService#createInsurance
+    @Version
+    private long version;
+
     public Car() {}
     public Car(String vin, String make, String model, int yearOfManufacture, Owner owner) {
         this.vin = vin; this.make = make; this.model = model; this.yearOfManufacture = yearOfManufacture; this.owner = owner;
@@ -36,4 +45,5 @@ public class Car {
     public void setYearOfManufacture(int y) { this.yearOfManufacture = y; }
     public Owner getOwner() { return owner; }
     public void setOwner(Owner owner) { this.owner = owner; }
+    public long getVersion() { return version; }
 }
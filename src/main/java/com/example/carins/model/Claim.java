@@ -12,8 +12,10 @@ import java.time.LocalDate;
 @Table(name = "claim")
 public class Claim {
 
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "claim_seq")
+    @SequenceGenerator(name = "claim_seq", sequenceName = "claim_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
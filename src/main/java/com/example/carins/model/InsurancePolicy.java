@@ -1,11 +1,15 @@
 package com.example.carins.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotNull;
 
 import java.time.LocalDate;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "insurancepolicy")
 public class InsurancePolicy {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
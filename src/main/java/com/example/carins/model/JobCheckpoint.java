@@ -0,0 +1,38 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * High-water mark of an incremental job: the (date, id) keyset position of the last processed row.
+ */
+@Entity
+@Table(name = "job_checkpoint")
+public class JobCheckpoint {
+    @Id
+    private String name;
+
+    private LocalDate lastDate;
+    private Long lastId;
+    private Instant updatedAt;
+
+    // Null until first saved, so a new checkpoint is inserted rather than merged; a stale copy fails to save
+    @Version
+    private Long version;
+
+    public JobCheckpoint() {}
+    public JobCheckpoint(String name, LocalDate lastDate, Long lastId) {
+        this.name = name; this.lastDate = lastDate; this.lastId = lastId;
+    }
+
+    public void advanceTo(LocalDate lastDate, Long lastId) {
+        this.lastDate = lastDate; this.lastId = lastId; this.updatedAt = Instant.now();
+    }
+
+    public String getName() { return name; }
+    public LocalDate getLastDate() { return lastDate; }
+    public Long getLastId() { return lastId; }
+    public Instant getUpdatedAt() { return updatedAt; }
+}
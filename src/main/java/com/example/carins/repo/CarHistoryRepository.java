@@ -0,0 +1,107 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.HistoryCursor;
+import com.example.carins.web.dto.HistoryEventDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Car history produced by one SQL merge of policy start/end events and claims, ordered by (date, eventId).
+ * Rows are mapped straight into {@link HistoryEventDto}; no entity is loaded.
+ */
+@Repository
+public class CarHistoryRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    // event_key = 3 * id + kind keeps keys unique across the three branches
+    private static final String HISTORY_SQL = """
+            select type, event_date, description, related_id, event_key from (
+              select 'INSURANCE_POLICY' as type, p.start_date as event_date,
+                     concat('Insurance policy started with ', p.provider) as description,
+                     p.id as related_id, p.id * 3 as event_key
+              from insurancepolicy p where p.car_id = :carId and p.start_date is not null
+              union all
+              select 'INSURANCE_POLICY', p.end_date, concat('Insurance policy ended with ', p.provider),
+                     p.id, p.id * 3 + 1
+              from insurancepolicy p where p.car_id = :carId and p.end_date is not null
+              union all
+              select 'CLAIM', c.claim_date, concat(c.description, ' - Amount: $', c.amount),
+                     c.id, c.id * 3 + 2
+              from claim c where c.car_id = :carId
+            ) h
+            """;
+
+    private static final String AFTER_CURSOR = "where h.event_date > :afterDate or (h.event_date = :afterDate and h.event_key > :afterKey) ";
+    private static final String ORDER = "order by h.event_date, h.event_key ";
+    private static final String LIMIT = "fetch first :limit rows only";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CarHistoryRepository(DataSource dataSource) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(FETCH_SIZE);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    /**
+     * Returns up to {@code limit} events after {@code after} (both optional) and the cursor of the next page, if any.
+     */
+    public HistoryPage findPage(Long carId, HistoryCursor after, Integer limit) {
+        List<HistoryEventDto> events = new ArrayList<>();
+        HistoryCursor[] last = new HistoryCursor[1];
+        boolean[] more = new boolean[1];
+
+        // one extra row tells whether another page exists
+        query(carId, after, limit != null ? limit + 1 : null, rs -> {
+            if (limit != null && events.size() == limit) {
+                more[0] = true;
+                return;
+            }
+            HistoryEventDto event = mapEvent(rs);
+            events.add(event);
+            last[0] = new HistoryCursor(event.date(), rs.getLong("event_key"));
+        });
+        return new HistoryPage(events, more[0] ? last[0] : null);
+    }
+
+    /**
+     * Hands events to {@code consumer} as rows arrive from the cursor, without buffering the history.
+     */
+    public void stream(Long carId, HistoryCursor after, Integer limit, Consumer<HistoryEventDto> consumer) {
+        query(carId, after, limit, rs -> consumer.accept(mapEvent(rs)));
+    }
+
+    private void query(Long carId, HistoryCursor after, Integer limit, RowCallbackHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource("carId", carId);
+        StringBuilder sql = new StringBuilder(HISTORY_SQL);
+        if (after != null) {
+            sql.append(AFTER_CURSOR);
+            params.addValue("afterDate", after.date()).addValue("afterKey", after.eventId());
+        }
+        sql.append(ORDER);
+        if (limit != null) {
+            sql.append(LIMIT);
+            params.addValue("limit", limit);
+        }
+        jdbcTemplate.query(sql.toString(), params, handler);
+    }
+
+    private static HistoryEventDto mapEvent(ResultSet rs) throws SQLException {
+        return new HistoryEventDto(rs.getString("type"), rs.getObject("event_date", LocalDate.class),
+                rs.getString("description"), rs.getLong("related_id"));
+    }
+
+    public record HistoryPage(List<HistoryEventDto> events, HistoryCursor nextCursor) {}
+}
@@ -1,17 +1,89 @@
-package com.example.carins.repo;
-
-import com.example.carins.model.*;
-import org.springframework.data.jpa.repository.*;
-import org.springframework.data.repository.query.Param;
-import org.springframework.stereotype.Repository;
-import java.time.LocalDate;
-import java.util.List;
-import java.util.Optional;
-
-@Repository
-public interface CarRepository extends JpaRepository<Car, Long> {
-    // TODO: enforce unique VIN at DB and via validation (exercise)
-    @EntityGraph(attributePaths = {"owner"})
-    List<Car> findAll();
-    Optional<Car> findByVin(String vin);
+package com.example.carins.repo;
+
+import com.example.carins.model.*;
+import com.example.carins.repo.projection.CarVin;
+import com.example.carins.web.dto.CarDto;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface CarRepository extends JpaRepository<Car, Long> {
+    // Backed by the unique index ux_car_vin (V2 migration)
+    Optional<Car> findByVin(String vin);
+
+    @Query("select c.id from Car c where c.vin = :vin")
+    Optional<Long> findIdByVin(@Param("vin") String vin);
+
+    @Query("select c.id from Car c")
+    List<Long> findAllIds();
+
+    @Query("select c.id from Car c where c.id > :afterId and c.id <= :upToId")
+    List<Long> findIdsBetween(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    @Query("select coalesce(max(c.id), 0) from Car c")
+    long findMaxId();
+
+    // Increments the car's version at commit, failing the transaction if another one changed it meanwhile
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select c from Car c where c.id = :id")
+    Optional<Car> findForPolicyChangeById(@Param("id") Long id);
+
+    @Query("select c.id from Car c where c.id in :carIds")
+    List<Long> findExistingIds(@Param("carIds") Collection<Long> carIds);
+
+    String CAR_DTO_QUERY = "select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, " +
+            "o.id, o.name, o.email) " +
+            "from Car c join c.owner o " +
+            "where c.id > :afterId " +
+            "and (:make is null or c.make = :make) " +
+            "and (:model is null or c.model = :model) " +
+            "and (:year is null or c.yearOfManufacture = :year) " +
+            "and (:ownerId is null or o.id = :ownerId) " +
+            "order by c.id";
+
+    // Keyset page of car DTOs, no entity is loaded
+    @Query(CAR_DTO_QUERY)
+    List<CarDto> findCarDtos(@Param("afterId") long afterId, @Param("make") String make, @Param("model") String model,
+                             @Param("year") Integer year, @Param("ownerId") Long ownerId, Limit limit);
+
+    // Forward-only read of the same projection, must be consumed inside a transaction
+    @Query(CAR_DTO_QUERY)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<CarDto> streamCarDtos(@Param("afterId") long afterId, @Param("make") String make, @Param("model") String model,
+                                 @Param("year") Integer year, @Param("ownerId") Long ownerId);
+
+    // One owner's cars in id order, answered from ix_car_owner (owner_id, id)
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, " +
+           "o.id, o.name, o.email) " +
+           "from Car c join c.owner o " +
+           "where o.id = :ownerId and c.id > :afterId " +
+           "order by c.id")
+    List<CarDto> findOwnerCarDtos(@Param("ownerId") Long ownerId, @Param("afterId") long afterId, Limit limit);
+
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, " +
+           "o.id, o.name, o.email) " +
+           "from Car c join c.owner o " +
+           "where c.id = :id")
+    Optional<CarDto> findCarDtoById(@Param("id") Long id);
+
+    // Every (id, vin) pair for the VIN index, read forward-only inside a transaction
+    @Query("select new com.example.carins.repo.projection.CarVin(c.id, c.vin) from Car c")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<CarVin> streamVins();
 }
\ No newline at end of file
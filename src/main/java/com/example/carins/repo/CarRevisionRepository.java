@@ -0,0 +1,77 @@
+package com.example.carins.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * The {@code car_revision} rows behind the ETags of the car read endpoints: per written car, the value of
+ * {@code car_revision_seq} taken by its last write. Bumps run in the caller's transaction.
+ */
+@Repository
+public class CarRevisionRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String BUMP_SQL = """
+            merge into car_revision r
+            using (values (cast(? as bigint))) as d(car_id)
+            on r.car_id = d.car_id
+            when matched then update set revision = next value for car_revision_seq
+            when not matched then insert (car_id, revision) values (d.car_id, next value for car_revision_seq)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CarRevisionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    public void bump(Collection<Long> carIds) {
+        List<Long> ids = carIds.stream().distinct().sorted().toList(); // one lock order for every writer
+        if (ids.isEmpty()) return;
+        // the car locks keep two first writes of a car from both inserting its row
+        jdbcTemplate.queryForList("select id from car where id = any(?) order by id for update", Long.class, idArray(ids));
+        jdbcTemplate.batchUpdate(BUMP_SQL, ids.stream().map(id -> new Object[] {id}).toList());
+    }
+
+    public Map<Long, Long> findRevisions(Collection<Long> carIds) {
+        Map<Long, Long> revisions = new HashMap<>(carIds.size() * 2);
+        if (carIds.isEmpty()) return revisions;
+        jdbcTemplate.query("select car_id, revision from car_revision where car_id = any(?)",
+                rs -> { revisions.put(rs.getLong("car_id"), rs.getLong("revision")); }, idArray(carIds));
+        return revisions;
+    }
+
+    public Optional<Long> findRevision(Long carId) {
+        return jdbcTemplate.queryForList("select revision from car_revision where car_id = ?", Long.class, carId)
+                .stream().findFirst();
+    }
+
+    public long findMaxRevision() {
+        return jdbcTemplate.queryForObject("select coalesce(max(revision), 0) from car_revision", Long.class);
+    }
+
+    /**
+     * Hands every (car id, revision) above {@code afterRevision} to {@code consumer}, answered from
+     * ix_car_revision_revision.
+     */
+    public void forEachRevisionAbove(long afterRevision, BiConsumer<Long, Long> consumer) {
+        jdbcTemplate.query("select car_id, revision from car_revision where revision > ?",
+                rs -> { consumer.accept(rs.getLong("car_id"), rs.getLong("revision")); }, afterRevision);
+    }
+
+    private static SqlParameterValue idArray(Collection<Long> ids) {
+        return new SqlParameterValue(Types.ARRAY, ids.toArray(Long[]::new));
+    }
+}
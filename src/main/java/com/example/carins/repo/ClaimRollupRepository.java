@@ -0,0 +1,168 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.CarClaimTotals;
+import com.example.carins.repo.projection.MonthlyClaimTotals;
+import com.example.carins.repo.projection.OwnerClaimTotals;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Claim totals per (car, month) in {@code claim_rollup}. Writers add deltas with one MERGE per group inside the
+ * claim's own transaction; reports aggregate the rollup rows with GROUP BY and never touch {@code claim}.
+ * Writers lock the cars first: two MERGEs that both find no row for a new month would otherwise both insert it,
+ * and one transaction would fail on the primary key.
+ */
+@Repository
+public class ClaimRollupRepository {
+
+    private static final String UPSERT_SQL = """
+            merge into claim_rollup r
+            using (values (cast(:carId as bigint), cast(:month as date), cast(:count as bigint), cast(:amount as numeric(38,2))))
+                  as d(car_id, claim_month, claim_count, total_amount)
+            on r.car_id = d.car_id and r.claim_month = d.claim_month
+            when matched then update set claim_count = r.claim_count + d.claim_count,
+                                         total_amount = r.total_amount + d.total_amount
+            when not matched then insert (car_id, claim_month, claim_count, total_amount)
+                                  values (d.car_id, d.claim_month, d.claim_count, d.total_amount)
+            """;
+
+    private static final String MONTH_RANGE = "r.claim_month between :fromMonth and :toMonth ";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ClaimRollupRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Adds {@code count} claims worth {@code amount} to the car's month; negative values take a claim out again.
+     */
+    public void add(Long carId, LocalDate claimDate, long count, BigDecimal amount) {
+        lockCars(List.of(carId));
+        jdbcTemplate.update(UPSERT_SQL, delta(carId, YearMonth.from(claimDate), count, amount));
+    }
+
+    public void addAll(List<Delta> deltas) {
+        if (deltas.isEmpty()) return;
+        lockCars(deltas.stream().map(Delta::carId).distinct().toList());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas.stream()
+                .map(d -> delta(d.carId(), d.month(), d.count(), d.amount()))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    // Held until the transaction ends; ordered by id so writers of several cars cannot deadlock
+    private void lockCars(Collection<Long> carIds) {
+        jdbcTemplate.queryForList("select id from car where id in (:carIds) order by id for update",
+                new MapSqlParameterSource("carIds", carIds), Long.class);
+    }
+
+    /**
+     * What a stored claim currently contributes to the rollup, read with plain JDBC so pending entity changes
+     * are not flushed first.
+     */
+    public Optional<Delta> findStoredContribution(Long claimId) {
+        return jdbcTemplate.query("select car_id, claim_date, amount from claim where id = :id",
+                new MapSqlParameterSource("id", claimId),
+                (rs, row) -> new Delta(rs.getLong("car_id"), YearMonth.from(rs.getObject("claim_date", LocalDate.class)),
+                        1, rs.getBigDecimal("amount"))).stream().findFirst();
+    }
+
+    public List<CarClaimTotals> totalsByCar(YearMonth from, YearMonth to, long afterCarId, Long ownerId, int limit) {
+        MapSqlParameterSource params = range(from, to).addValue("afterCarId", afterCarId).addValue("limit", limit);
+        String ownerFilter = "";
+        if (ownerId != null) {
+            ownerFilter = "and c.owner_id = :ownerId ";
+            params.addValue("ownerId", ownerId);
+        }
+        return jdbcTemplate.query("""
+                select r.car_id, c.vin, sum(r.claim_count) as claim_count, sum(r.total_amount) as total_amount
+                from claim_rollup r join car c on c.id = r.car_id
+                where r.car_id > :afterCarId and\s""" + MONTH_RANGE + ownerFilter + """
+                group by r.car_id, c.vin
+                order by r.car_id
+                fetch first :limit rows only
+                """, params, (rs, row) -> new CarClaimTotals(rs.getLong("car_id"), rs.getString("vin"),
+                rs.getLong("claim_count"), rs.getBigDecimal("total_amount")));
+    }
+
+    public List<OwnerClaimTotals> totalsByOwner(YearMonth from, YearMonth to, long afterOwnerId, int limit) {
+        return jdbcTemplate.query("""
+                select o.id, o.name, sum(r.claim_count) as claim_count, sum(r.total_amount) as total_amount
+                from claim_rollup r join car c on c.id = r.car_id join owner o on o.id = c.owner_id
+                where o.id > :afterOwnerId and\s""" + MONTH_RANGE + """
+                group by o.id, o.name
+                order by o.id
+                fetch first :limit rows only
+                """, range(from, to).addValue("afterOwnerId", afterOwnerId).addValue("limit", limit),
+                (rs, row) -> new OwnerClaimTotals(rs.getLong("id"), rs.getString("name"),
+                        rs.getLong("claim_count"), rs.getBigDecimal("total_amount")));
+    }
+
+    /**
+     * All-time totals of the given cars; cars without claims are absent from the result.
+     */
+    public List<CarClaimTotals> totalsForCars(Collection<Long> carIds) {
+        if (carIds.isEmpty()) return List.of();
+        return jdbcTemplate.query("""
+                select r.car_id, sum(r.claim_count) as claim_count, sum(r.total_amount) as total_amount
+                from claim_rollup r
+                where r.car_id in (:carIds)
+                group by r.car_id
+                """, new MapSqlParameterSource("carIds", carIds),
+                (rs, row) -> new CarClaimTotals(rs.getLong("car_id"), null, rs.getLong("claim_count"), rs.getBigDecimal("total_amount")));
+    }
+
+    public List<MonthlyClaimTotals> totalsByMonth(YearMonth from, YearMonth to, Long carId, Long ownerId) {
+        MapSqlParameterSource params = range(from, to);
+        StringBuilder filter = new StringBuilder();
+        if (carId != null) {
+            filter.append("and r.car_id = :carId ");
+            params.addValue("carId", carId);
+        }
+        if (ownerId != null) {
+            filter.append("and r.car_id in (select id from car where owner_id = :ownerId) ");
+            params.addValue("ownerId", ownerId);
+        }
+        return jdbcTemplate.query("""
+                select r.claim_month, sum(r.claim_count) as claim_count, sum(r.total_amount) as total_amount
+                from claim_rollup r
+                where\s""" + MONTH_RANGE + filter + """
+                group by r.claim_month
+                order by r.claim_month
+                """, params, (rs, row) -> new MonthlyClaimTotals(YearMonth.from(rs.getObject("claim_month", LocalDate.class)),
+                rs.getLong("claim_count"), rs.getBigDecimal("total_amount")));
+    }
+
+    private static MapSqlParameterSource range(YearMonth from, YearMonth to) {
+        return new MapSqlParameterSource("fromMonth", from.atDay(1)).addValue("toMonth", to.atDay(1));
+    }
+
+    private static MapSqlParameterSource delta(Long carId, YearMonth month, long count, BigDecimal amount) {
+        return new MapSqlParameterSource("carId", carId).addValue("month", month.atDay(1))
+                .addValue("count", count).addValue("amount", amount);
+    }
+
+    /**
+     * Change to one (car, month) rollup row.
+     */
+    public record Delta(Long carId, YearMonth month, long count, BigDecimal amount) {
+
+        public Delta plus(Delta other) {
+            return new Delta(carId, month, count + other.count, amount.add(other.amount));
+        }
+
+        public Delta negate() {
+            return new Delta(carId, month, -count, amount.negate());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.ClaimSubmission;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@code claim_submission} outbox. Appends auto-commit on their own; the consumer locks the submissions it is
+ * about to store and marks their outcomes in the transaction that stores the claims, so a claim is never stored
+ * without its submission leaving PENDING, and two consumers never store the same submission.
+ */
+@Repository
+public class ClaimSubmissionRepository {
+
+    public static final String PENDING = "PENDING";
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String SELECT = "select tracking_id, car_id, claim_date, description, amount, status, claim_id, " +
+            "error, submitted_at, processed_at from claim_submission ";
+
+    private static final RowMapper<ClaimSubmission> MAPPER = (rs, row) -> new ClaimSubmission(
+            rs.getString("tracking_id"), rs.getLong("car_id"), rs.getObject("claim_date", LocalDate.class),
+            rs.getString("description"), rs.getBigDecimal("amount"), rs.getString("status"),
+            rs.getObject("claim_id", Long.class), rs.getString("error"), instant(rs.getTimestamp("submitted_at")),
+            instant(rs.getTimestamp("processed_at")));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ClaimSubmissionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    public void insert(ClaimSubmission submission) {
+        jdbcTemplate.update("insert into claim_submission (tracking_id, car_id, claim_date, description, amount, status, submitted_at) " +
+                        "values (:trackingId, :carId, :claimDate, :description, :amount, :status, :submittedAt)",
+                new MapSqlParameterSource("trackingId", submission.trackingId())
+                        .addValue("carId", submission.carId())
+                        .addValue("claimDate", submission.claimDate())
+                        .addValue("description", submission.description())
+                        .addValue("amount", submission.amount())
+                        .addValue("status", submission.status())
+                        .addValue("submittedAt", Timestamp.from(submission.submittedAt())));
+    }
+
+    public Optional<ClaimSubmission> findByTrackingId(String trackingId) {
+        return jdbcTemplate.query(SELECT + "where tracking_id = :trackingId",
+                new MapSqlParameterSource("trackingId", trackingId), MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Oldest PENDING submissions first.
+     */
+    public List<ClaimSubmission> findPending(int limit) {
+        return jdbcTemplate.query(SELECT + "where status = 'PENDING' order by id fetch first :limit rows only",
+                new MapSqlParameterSource("limit", limit), MAPPER);
+    }
+
+    /**
+     * Locks those of the submissions that are still PENDING, until the caller's transaction ends, and returns
+     * them in submission order. A consumer that gets here second waits for the first one's commit and then no
+     * longer sees the submissions it stored.
+     */
+    public List<ClaimSubmission> lockPending(List<String> trackingIds) {
+        if (trackingIds.isEmpty()) return List.of();
+        return jdbcTemplate.query(SELECT + "where tracking_id in (:trackingIds) and status = 'PENDING' order by id for update",
+                new MapSqlParameterSource("trackingIds", trackingIds), MAPPER);
+    }
+
+    /**
+     * Records outcomes with one batched UPDATE; submissions no longer PENDING are left alone. Returns, per
+     * outcome, whether its submission was updated.
+     */
+    public boolean[] markProcessed(List<Outcome> outcomes, Instant now) {
+        if (outcomes.isEmpty()) return new boolean[0];
+        int[] counts = jdbcTemplate.batchUpdate("update claim_submission set status = :status, claim_id = :claimId, error = :error, " +
+                "processed_at = :now where tracking_id = :trackingId and status = 'PENDING'", outcomes.stream()
+                .map(o -> new MapSqlParameterSource("trackingId", o.trackingId())
+                        .addValue("status", o.claimId() != null ? CREATED : REJECTED)
+                        .addValue("claimId", o.claimId())
+                        .addValue("error", o.error() == null || o.error().length() <= MAX_ERROR_LENGTH
+                                ? o.error() : o.error().substring(0, MAX_ERROR_LENGTH))
+                        .addValue("now", Timestamp.from(now)))
+                .toArray(SqlParameterSource[]::new));
+        boolean[] updated = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            updated[i] = counts[i] != 0; // SUCCESS_NO_INFO (-2) counts as updated
+        }
+        return updated;
+    }
+
+    /**
+     * Forgets processed submissions older than {@code before}. Returns how many were deleted.
+     */
+    public int deleteProcessedBefore(Instant before) {
+        return jdbcTemplate.update("delete from claim_submission where status <> 'PENDING' and processed_at < :before",
+                new MapSqlParameterSource("before", Timestamp.from(before)));
+    }
+
+    public long countByStatus(String status) {
+        return jdbcTemplate.queryForObject("select count(*) from claim_submission where status = :status",
+                new MapSqlParameterSource("status", status), Long.class);
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * Outcome of one submission: {@code claimId} when stored, otherwise {@code error}.
+     */
+    public record Outcome(String trackingId, Long claimId, String error) {}
+}
@@ -0,0 +1,83 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.CoverageAnomaly;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Reads all policies in sweep order for the coverage job and stores / pages its findings in {@code coverage_anomaly}.
+ */
+@Repository
+public class CoverageAnomalyRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public CoverageAnomalyRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Hands every policy with a start date to {@code handler}, ordered by (car_id, start_date, id), as rows arrive.
+     * Columns: id, car_id, start_date, end_date.
+     */
+    public void streamPoliciesInSweepOrder(RowCallbackHandler handler) {
+        jdbcTemplate.query("select id, car_id, start_date, end_date from insurancepolicy " +
+                "where start_date is not null order by car_id, start_date, id", handler);
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("delete from coverage_anomaly");
+    }
+
+    public void insertAll(List<CoverageAnomaly> anomalies, Instant detectedAt) {
+        if (anomalies.isEmpty()) return;
+        Timestamp detected = Timestamp.from(detectedAt);
+        jdbcTemplate.batchUpdate("insert into coverage_anomaly (car_id, kind, start_date, end_date, first_policy_id, " +
+                        "second_policy_id, detected_at) values (?, ?, ?, ?, ?, ?, ?)",
+                anomalies, anomalies.size(), (ps, anomaly) -> {
+                    ps.setLong(1, anomaly.carId());
+                    ps.setString(2, anomaly.kind());
+                    ps.setDate(3, Date.valueOf(anomaly.startDate()));
+                    ps.setDate(4, Date.valueOf(anomaly.endDate()));
+                    ps.setLong(5, anomaly.firstPolicyId());
+                    ps.setLong(6, anomaly.secondPolicyId());
+                    ps.setTimestamp(7, detected);
+                });
+    }
+
+    /**
+     * Anomalies with an id greater than {@code afterId}, optionally of one car and/or kind, ordered by id.
+     */
+    public List<CoverageAnomaly> findPage(Long carId, String kind, long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("afterId", afterId).addValue("limit", limit);
+        StringBuilder sql = new StringBuilder("select id, car_id, kind, start_date, end_date, first_policy_id, second_policy_id " +
+                "from coverage_anomaly where id > :afterId ");
+        if (carId != null) {
+            sql.append("and car_id = :carId ");
+            params.addValue("carId", carId);
+        }
+        if (kind != null) {
+            sql.append("and kind = :kind ");
+            params.addValue("kind", kind);
+        }
+        sql.append("order by id fetch first :limit rows only");
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, row) -> new CoverageAnomaly(rs.getLong("id"),
+                rs.getLong("car_id"), rs.getString("kind"), rs.getObject("start_date", LocalDate.class),
+                rs.getObject("end_date", LocalDate.class), rs.getLong("first_policy_id"), rs.getLong("second_policy_id")));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.CoverageSnapshotRow;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Computes the set of cars insured on a date with one scan of {@code insurancepolicy} and stores the result in
+ * {@code coverage_snapshot}, together with the invalidation generation guarding those writes. Each call runs in its
+ * own auto-committed statement on the primary, unless the caller opens a transaction around it.
+ */
+@Repository
+public class CoverageSnapshotRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String UPSERT_SQL = """
+            merge into coverage_snapshot s
+            using (values (cast(:date as date), cast(:insuredCars as bigint), cast(:bitmap as blob),
+                           cast(:computedAt as timestamp(6) with time zone)))
+                  as d(snapshot_date, insured_cars, bitmap, computed_at)
+            on s.snapshot_date = d.snapshot_date
+            when matched then update set insured_cars = d.insured_cars, bitmap = d.bitmap, computed_at = d.computed_at
+            when not matched then insert (snapshot_date, insured_cars, bitmap, computed_at)
+                                  values (d.snapshot_date, d.insured_cars, d.bitmap, d.computed_at)
+            """;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public CoverageSnapshotRepository(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Ids of the cars with a policy active on {@code date}, same rule as existsActiveOnDate, as bits of a set.
+     * Cars with several active policies simply set their bit again, so the scan needs no DISTINCT.
+     */
+    public BitSet findInsuredCarIds(LocalDate date) {
+        BitSet insured = new BitSet();
+        namedJdbcTemplate.query("select car_id from insurancepolicy " +
+                        "where start_date <= :date and (end_date is null or end_date >= :date)",
+                new MapSqlParameterSource("date", date), rs -> {
+                    long carId = rs.getLong(1);
+                    if (carId >= Integer.MAX_VALUE) {
+                        throw new IllegalStateException("Car id " + carId + " does not fit a coverage snapshot");
+                    }
+                    insured.set((int) carId);
+                });
+        return insured;
+    }
+
+    public Optional<CoverageSnapshotRow> find(LocalDate date) {
+        List<CoverageSnapshotRow> rows = namedJdbcTemplate.query("select snapshot_date, insured_cars, bitmap, computed_at " +
+                        "from coverage_snapshot where snapshot_date = :date", new MapSqlParameterSource("date", date),
+                (rs, row) -> new CoverageSnapshotRow(rs.getObject("snapshot_date", LocalDate.class),
+                        rs.getLong("insured_cars"), rs.getBytes("bitmap"), rs.getTimestamp("computed_at").toInstant()));
+        return rows.stream().findFirst();
+    }
+
+    public void save(CoverageSnapshotRow snapshot) {
+        namedJdbcTemplate.update(UPSERT_SQL, new MapSqlParameterSource("date", snapshot.snapshotDate())
+                .addValue("insuredCars", snapshot.insuredCars())
+                .addValue("bitmap", snapshot.bitmap())
+                .addValue("computedAt", Timestamp.from(snapshot.computedAt())));
+    }
+
+    public long currentGeneration() {
+        return namedJdbcTemplate.getJdbcTemplate().queryForObject(
+                "select generation from coverage_snapshot_generation where id = 1", Long.class);
+    }
+
+    /**
+     * Locks the generation row until the surrounding transaction ends, if it still holds {@code generation}; false
+     * when an invalidation bumped it since. The comparison is part of the locking query, so it sees the committed
+     * value once a concurrent invalidation releases the row.
+     */
+    public boolean lockGenerationIfCurrent(long generation) {
+        return !namedJdbcTemplate.queryForList("select id from coverage_snapshot_generation " +
+                "where id = 1 and generation = :generation for update", new MapSqlParameterSource("generation", generation),
+                Integer.class).isEmpty();
+    }
+
+    public void bumpGeneration() {
+        namedJdbcTemplate.getJdbcTemplate().update("update coverage_snapshot_generation set generation = generation + 1 where id = 1");
+    }
+
+    /**
+     * Drops the stored snapshots dated {@code from} to {@code to}, both inclusive; a null {@code to} has no end.
+     */
+    public int deleteBetween(LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource("from", from);
+        if (to == null) {
+            return namedJdbcTemplate.update("delete from coverage_snapshot where snapshot_date >= :from", params);
+        }
+        return namedJdbcTemplate.update("delete from coverage_snapshot where snapshot_date between :from and :to",
+                params.addValue("to", to));
+    }
+}
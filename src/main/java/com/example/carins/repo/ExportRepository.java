@@ -0,0 +1,75 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.ClaimExportRow;
+import com.example.carins.repo.projection.PolicyExportRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Full-table exports of policies and claims, read through a forward-only cursor that fetches
+ * {@code carins.export.fetch-size} rows per round trip. Rows are handed over one at a time as the cursor moves and
+ * never collected; ordered by primary key, so no sort has to be buffered by the database either. Drivers such as
+ * PostgreSQL only honour the fetch size inside a transaction, so callers run in a read-only one.
+ */
+@Repository
+public class ExportRepository {
+
+    private static final String POLICIES_SQL = """
+            select p.id, p.car_id, c.vin, p.provider, p.start_date, p.end_date
+            from insurancepolicy p join car c on c.id = p.car_id
+            """;
+
+    private static final String CLAIMS_SQL = """
+            select cl.id, cl.car_id, c.vin, cl.claim_date, cl.description, cl.amount
+            from claim cl join car c on c.id = cl.car_id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ExportRepository(DataSource dataSource, @Value("${carins.export.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    /**
+     * Policies whose end date is within [from, to]; a missing bound leaves that side open.
+     */
+    public void streamPolicies(LocalDate from, LocalDate to, Consumer<PolicyExportRow> consumer) {
+        query(POLICIES_SQL, "p", "end_date", from, to, rs -> consumer.accept(new PolicyExportRow(
+                rs.getLong("id"), rs.getLong("car_id"), rs.getString("vin"), rs.getString("provider"),
+                rs.getObject("start_date", LocalDate.class), rs.getObject("end_date", LocalDate.class))));
+    }
+
+    /**
+     * Claims whose claim date is within [from, to]; a missing bound leaves that side open.
+     */
+    public void streamClaims(LocalDate from, LocalDate to, Consumer<ClaimExportRow> consumer) {
+        query(CLAIMS_SQL, "cl", "claim_date", from, to, rs -> consumer.accept(new ClaimExportRow(
+                rs.getLong("id"), rs.getLong("car_id"), rs.getString("vin"), rs.getObject("claim_date", LocalDate.class),
+                rs.getString("description"), rs.getBigDecimal("amount"))));
+    }
+
+    private void query(String select, String alias, String dateColumn, LocalDate from, LocalDate to, RowCallbackHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(select).append("where 1 = 1 ");
+        if (from != null) {
+            sql.append("and ").append(alias).append('.').append(dateColumn).append(" >= :from ");
+            params.addValue("from", from);
+        }
+        if (to != null) {
+            sql.append("and ").append(alias).append('.').append(dateColumn).append(" <= :to ");
+            params.addValue("to", to);
+        }
+        sql.append("order by ").append(alias).append(".id");
+        jdbcTemplate.query(sql.toString(), params, handler);
+    }
+}
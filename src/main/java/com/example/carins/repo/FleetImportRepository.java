@@ -0,0 +1,90 @@
+package com.example.carins.repo;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched inserts of owners, cars and policies for the fleet import. Plain JDBC in the caller's transaction:
+ * one statement batch per table and chunk, with ids read back from the generated keys of the same batch.
+ * Nothing goes through the persistence context, so the caller evicts what the second-level cache may hold.
+ */
+@Repository
+public class FleetImportRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public FleetImportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Owner id per email, the oldest owner when several share one.
+     */
+    public Map<String, Long> findOwnerIdsByEmail(Collection<String> emails) {
+        Map<String, Long> ids = new HashMap<>();
+        if (emails.isEmpty()) return ids;
+        jdbcTemplate.query("select email, min(id) as id from owner where email in (:emails) group by email",
+                new MapSqlParameterSource("emails", emails),
+                rs -> { ids.put(rs.getString("email"), rs.getLong("id")); });
+        return ids;
+    }
+
+    /**
+     * Inserts the owners and returns their ids, in order.
+     */
+    public List<Long> insertOwners(List<NewOwner> owners) {
+        return insertReturningIds("insert into owner (name, email) values (:name, :email)", owners.stream()
+                .map(o -> new MapSqlParameterSource("name", o.name()).addValue("email", o.email()))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    /**
+     * Inserts the cars and returns their ids, in order.
+     */
+    public List<Long> insertCars(List<NewCar> cars) {
+        return insertReturningIds("insert into car (vin, make, model, year_of_manufacture, owner_id) " +
+                        "values (:vin, :make, :model, :year, :ownerId)", cars.stream()
+                .map(c -> new MapSqlParameterSource("vin", c.vin())
+                        .addValue("make", c.make())
+                        .addValue("model", c.model())
+                        .addValue("year", c.yearOfManufacture())
+                        .addValue("ownerId", c.ownerId()))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    public void insertPolicies(List<NewPolicy> policies) {
+        if (policies.isEmpty()) return;
+        jdbcTemplate.batchUpdate("insert into insurancepolicy (car_id, provider, start_date, end_date) " +
+                        "values (:carId, :provider, :startDate, :endDate)", policies.stream()
+                .map(p -> new MapSqlParameterSource("carId", p.carId())
+                        .addValue("provider", p.provider())
+                        .addValue("startDate", p.startDate())
+                        .addValue("endDate", p.endDate()))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    private List<Long> insertReturningIds(String sql, SqlParameterSource[] rows) {
+        if (rows.length == 0) return List.of();
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(sql, rows, keys, new String[]{"id"});
+        return keys.getKeyList().stream()
+                .map(key -> ((Number) key.values().iterator().next()).longValue())
+                .toList();
+    }
+
+    public record NewOwner(String name, String email) {}
+
+    public record NewCar(String vin, String make, String model, int yearOfManufacture, long ownerId) {}
+
+    public record NewPolicy(long carId, String provider, LocalDate startDate, LocalDate endDate) {}
+}
@@ -1,10 +1,17 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.*;
+import com.example.carins.repo.projection.ActivePolicy;
+import com.example.carins.repo.projection.ExpiredPolicy;
+import com.example.carins.repo.projection.PolicyPeriod;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,11 +25,61 @@ public interface InsurancePolicyRepository extends JpaRepository<InsurancePolicy
            "and (p.endDate is null or p.endDate >= :date)")
     boolean existsActiveOnDate(@Param("carId") Long carId, @Param("date") LocalDate date);
 
+    // Policies sharing at least one day with [startDate, endDate]; a policy without start date never covers a day
+    @Query("select case when count(p) > 0 then true else false end " +
+           "from InsurancePolicy p " +
+           "where p.car.id = :carId " +
+           "and p.startDate is not null and p.startDate <= :endDate " +
+           "and (p.endDate is null or p.endDate >= :startDate)")
+    boolean existsOverlapping(@Param("carId") Long carId, @Param("startDate") LocalDate startDate,
+                              @Param("endDate") LocalDate endDate);
+
+    // Query cache keeps the policy ids per car; entities come from the second-level cache and the
+    // result is invalidated whenever the insurancepolicy table is written through Hibernate
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<InsurancePolicy> findByCarId(Long carId);
 
     List<InsurancePolicy> findByEndDate(LocalDate endDate);
 
     List<InsurancePolicy> findByEndDateBefore(LocalDate date);
 
+    @Query("select new com.example.carins.repo.projection.PolicyPeriod(p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p order by p.car.id")
+    List<PolicyPeriod> findAllPeriodsOrderByCar();
+
+    // Policies with an id in (afterId, upToId], for the delta refresh of the validity index
+    @Query("select new com.example.carins.repo.projection.PolicyPeriod(p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p where p.id > :afterId and p.id <= :upToId")
+    List<PolicyPeriod> findPeriodsWithIdBetween(@Param("afterId") long afterId, @Param("upToId") long upToId);
+
+    @Query("select coalesce(max(p.id), 0) from InsurancePolicy p")
+    long findMaxId();
 
+    // Keyset window over expired policies after the (endDate, id) checkpoint, car id included to avoid lazy loads.
+    // Only the shard's cars: mod(car_id, shards) = shard
+    @Query("select new com.example.carins.repo.projection.ExpiredPolicy(p.id, p.car.id, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.endDate < :today " +
+           "and (p.endDate > :afterDate or (p.endDate = :afterDate and p.id > :afterId)) " +
+           "and mod(p.car.id, :shards) = :shard " +
+           "order by p.endDate, p.id")
+    List<ExpiredPolicy> findExpiredAfter(@Param("today") LocalDate today, @Param("afterDate") LocalDate afterDate,
+                                         @Param("afterId") Long afterId, @Param("shards") int shards,
+                                         @Param("shard") int shard, Limit limit);
+
+    @Query("select count(p) from InsurancePolicy p " +
+           "where p.endDate < :today " +
+           "and (p.endDate > :afterDate or (p.endDate = :afterDate and p.id > :afterId)) " +
+           "and mod(p.car.id, :shards) = :shard")
+    long countExpiredAfter(@Param("today") LocalDate today, @Param("afterDate") LocalDate afterDate,
+                           @Param("afterId") Long afterId, @Param("shards") int shards, @Param("shard") int shard);
+
+    // Policies of the given cars covering the date, latest start first per car
+    @Query("select new com.example.carins.repo.projection.ActivePolicy(p.car.id, p.id, p.provider, p.startDate, p.endDate) " +
+           "from InsurancePolicy p " +
+           "where p.car.id in :carIds " +
+           "and p.startDate <= :date " +
+           "and (p.endDate is null or p.endDate >= :date) " +
+           "order by p.car.id, p.startDate desc, p.id desc")
+    List<ActivePolicy> findActiveOnDate(@Param("carIds") Collection<Long> carIds, @Param("date") LocalDate date);
 }
\ No newline at end of file
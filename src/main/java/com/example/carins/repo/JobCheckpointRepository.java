@@ -0,0 +1,13 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    List<JobCheckpoint> findByNameStartingWith(String prefix);
+}
@@ -0,0 +1,105 @@
+package com.example.carins.repo;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The {@code notification_outbox} table. Enqueueing is one INSERT ... SELECT so policies never pass through the
+ * heap; dispatching reads due PENDING notices a few owners at a time.
+ */
+@Repository
+public class NotificationOutboxRepository {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public NotificationOutboxRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Queues a notice for every policy ending between {@code from} and {@code to} that has none for its current
+     * end date yet. Returns the number of notices added.
+     */
+    public int enqueueExpiringBetween(LocalDate from, LocalDate to, Instant now) {
+        return jdbcTemplate.update("""
+                insert into notification_outbox (owner_id, car_id, policy_id, end_date, status, attempts, next_attempt_at, created_at)
+                select c.owner_id, p.car_id, p.id, p.end_date, 'PENDING', 0, :now, :now
+                from insurancepolicy p join car c on c.id = p.car_id
+                where p.end_date between :from and :to
+                and not exists (select 1 from notification_outbox n where n.policy_id = p.id and n.end_date = p.end_date)
+                """, new MapSqlParameterSource("from", from).addValue("to", to).addValue("now", Timestamp.from(now)));
+    }
+
+    /**
+     * Next owners (by id, after {@code afterOwnerId}) with notices due at {@code now}.
+     */
+    public List<Long> findOwnersWithDueNotices(long afterOwnerId, Instant now, int limit) {
+        return jdbcTemplate.queryForList("""
+                select distinct owner_id from notification_outbox
+                where status = 'PENDING' and owner_id > :afterOwnerId and next_attempt_at <= :now
+                order by owner_id
+                fetch first :limit rows only
+                """, new MapSqlParameterSource("afterOwnerId", afterOwnerId).addValue("now", Timestamp.from(now))
+                .addValue("limit", limit), Long.class);
+    }
+
+    /**
+     * Due notices of the owners from {@code firstOwnerId} to {@code lastOwnerId}, ordered by owner.
+     */
+    public List<DueNotice> findDueNotices(long firstOwnerId, long lastOwnerId, Instant now) {
+        return jdbcTemplate.query("""
+                select n.id, n.owner_id, o.name, o.email, n.policy_id, n.car_id, c.vin, n.end_date, n.attempts
+                from notification_outbox n
+                join owner o on o.id = n.owner_id
+                join car c on c.id = n.car_id
+                where n.status = 'PENDING' and n.owner_id between :firstOwnerId and :lastOwnerId and n.next_attempt_at <= :now
+                order by n.owner_id, n.end_date, n.id
+                """, new MapSqlParameterSource("firstOwnerId", firstOwnerId).addValue("lastOwnerId", lastOwnerId)
+                .addValue("now", Timestamp.from(now)),
+                (rs, row) -> new DueNotice(rs.getLong("id"), rs.getLong("owner_id"), rs.getString("name"),
+                        rs.getString("email"), rs.getLong("policy_id"), rs.getLong("car_id"), rs.getString("vin"),
+                        rs.getObject("end_date", LocalDate.class), rs.getInt("attempts")));
+    }
+
+    public void markSent(Collection<Long> ids, Instant now) {
+        jdbcTemplate.update("update notification_outbox set status = 'SENT', sent_at = :now, attempts = attempts + 1 where id in (:ids)",
+                new MapSqlParameterSource("ids", ids).addValue("now", Timestamp.from(now)));
+    }
+
+    /**
+     * Records a failed attempt: the notices are retried at {@code retryAt}, or marked FAILED once they reached
+     * {@code maxAttempts}.
+     */
+    public void markAttemptFailed(Collection<Long> ids, Instant retryAt, int maxAttempts, String error) {
+        jdbcTemplate.update("""
+                update notification_outbox
+                set attempts = attempts + 1,
+                    status = case when attempts + 1 >= :maxAttempts then 'FAILED' else 'PENDING' end,
+                    next_attempt_at = :retryAt,
+                    last_error = :error
+                where id in (:ids)
+                """, new MapSqlParameterSource("ids", ids).addValue("retryAt", Timestamp.from(retryAt))
+                .addValue("maxAttempts", maxAttempts)
+                .addValue("error", error != null && error.length() > 500 ? error.substring(0, 500) : error));
+    }
+
+    public long countByStatus(String status) {
+        return jdbcTemplate.queryForObject("select count(*) from notification_outbox where status = :status",
+                new MapSqlParameterSource("status", status), Long.class);
+    }
+
+    public record DueNotice(Long id, Long ownerId, String ownerName, String ownerEmail, Long policyId, Long carId,
+                            String vin, LocalDate endDate, int attempts) {}
+}
@@ -0,0 +1,38 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.PolicyPeriod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Policy periods of a set of cars for the coverage fallback. The ids travel as one array parameter, so any number of
+ * cars is a single statement with a single plan, answered from the car primary key.
+ */
+@Repository
+public class PolicyPeriodRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PolicyPeriodRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * One row per policy, or a single row with null dates for cars without policies, grouped by car.
+     * Unknown ids have no rows.
+     */
+    public List<PolicyPeriod> findPeriodsForCars(Collection<Long> carIds) {
+        Long[] ids = carIds.toArray(Long[]::new);
+        return jdbcTemplate.query("select c.id, p.start_date, p.end_date " +
+                        "from car c left join insurancepolicy p on p.car_id = c.id " +
+                        "where c.id = any(?) order by c.id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", ids)),
+                (rs, row) -> new PolicyPeriod(rs.getLong("id"), rs.getObject("start_date", LocalDate.class),
+                        rs.getObject("end_date", LocalDate.class)));
+    }
+}
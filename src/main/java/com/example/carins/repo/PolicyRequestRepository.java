@@ -0,0 +1,52 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.PolicyRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Idempotency keys of policy creation requests in {@code policy_request}. Runs in the caller's transaction, so the
+ * key is only visible once the policy it points to is committed.
+ */
+@Repository
+public class PolicyRequestRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PolicyRequestRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    public Optional<PolicyRequest> findByKey(String idempotencyKey) {
+        return jdbcTemplate.query("select idempotency_key, car_id, provider, start_date, end_date, policy_id " +
+                        "from policy_request where idempotency_key = :key",
+                new MapSqlParameterSource("key", idempotencyKey),
+                (rs, rowNum) -> new PolicyRequest(rs.getString("idempotency_key"), rs.getLong("car_id"),
+                        rs.getString("provider"), rs.getObject("start_date", LocalDate.class),
+                        rs.getObject("end_date", LocalDate.class), rs.getLong("policy_id")))
+                .stream().findFirst();
+    }
+
+    /**
+     * Records the key; throws {@link org.springframework.dao.DuplicateKeyException} if another request holds it,
+     * waiting for that request's transaction first if it has not committed yet.
+     */
+    public void insert(PolicyRequest request) {
+        jdbcTemplate.update("insert into policy_request (idempotency_key, car_id, provider, start_date, end_date, policy_id, created_at) " +
+                        "values (:key, :carId, :provider, :startDate, :endDate, :policyId, :now)",
+                new MapSqlParameterSource("key", request.idempotencyKey())
+                        .addValue("carId", request.carId())
+                        .addValue("provider", request.provider())
+                        .addValue("startDate", request.startDate())
+                        .addValue("endDate", request.endDate())
+                        .addValue("policyId", request.policyId())
+                        .addValue("now", Timestamp.from(Instant.now())));
+    }
+}
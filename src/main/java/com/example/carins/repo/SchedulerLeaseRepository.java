@@ -0,0 +1,85 @@
+package com.example.carins.repo;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Database leases in {@code scheduler_lease}: taking one is a single conditional UPDATE (or the first INSERT),
+ * so exactly one node wins however many race for it. Each call runs in its own auto-committed statement.
+ */
+@Repository
+public class SchedulerLeaseRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SchedulerLeaseRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Takes the lease for {@code duration} if it is free or expired. Returns whether {@code owner} now holds it.
+     */
+    public boolean tryAcquire(String name, String owner, Duration duration) {
+        Instant now = Instant.now();
+        MapSqlParameterSource params = new MapSqlParameterSource("name", name)
+                .addValue("owner", owner)
+                .addValue("now", Timestamp.from(now))
+                .addValue("until", Timestamp.from(now.plus(duration)));
+
+        int taken = jdbcTemplate.update("update scheduler_lease set locked_until = :until, locked_at = :now, locked_by = :owner " +
+                "where name = :name and locked_until <= :now", params);
+        if (taken == 1) return true;
+
+        try {
+            return jdbcTemplate.update("insert into scheduler_lease (name, locked_until, locked_at, locked_by) " +
+                    "values (:name, :until, :now, :owner)", params) == 1;
+        } catch (DuplicateKeyException e) {
+            return false; // exists and is held by someone else
+        }
+    }
+
+    /**
+     * A lease owner name for one scheduler instance: host, process and a random part, so two instances in the
+     * same JVM are still told apart.
+     */
+    public static String newOwnerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "/" + ProcessHandle.current().pid() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Extends a lease {@code owner} still holds to {@code duration} from now. Returns false if it expired and may
+     * have been taken over, in which case the owner must stop the work the lease guards.
+     */
+    public boolean renew(String name, String owner, Duration duration) {
+        Instant now = Instant.now();
+        return jdbcTemplate.update("update scheduler_lease set locked_until = :until " +
+                        "where name = :name and locked_by = :owner and locked_until > :now",
+                new MapSqlParameterSource("name", name)
+                        .addValue("owner", owner)
+                        .addValue("now", Timestamp.from(now))
+                        .addValue("until", Timestamp.from(now.plus(duration)))) == 1;
+    }
+
+    /**
+     * Gives the lease up early; does nothing if it expired and was taken over by another node meanwhile.
+     */
+    public void release(String name, String owner) {
+        jdbcTemplate.update("update scheduler_lease set locked_until = :now where name = :name and locked_by = :owner",
+                new MapSqlParameterSource("name", name).addValue("owner", owner).addValue("now", Timestamp.from(Instant.now())));
+    }
+}
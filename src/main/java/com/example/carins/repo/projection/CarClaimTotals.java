@@ -0,0 +1,5 @@
+package com.example.carins.repo.projection;
+
+import java.math.BigDecimal;
+
+public record CarClaimTotals(Long carId, String vin, long claimCount, BigDecimal totalAmount) {}
@@ -0,0 +1,3 @@
+package com.example.carins.repo.projection;
+
+public record CarVin(Long carId, String vin) {}
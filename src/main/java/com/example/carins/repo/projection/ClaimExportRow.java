@@ -0,0 +1,6 @@
+package com.example.carins.repo.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record ClaimExportRow(Long claimId, Long carId, String vin, LocalDate claimDate, String description, BigDecimal amount) {}
@@ -0,0 +1,11 @@
+package com.example.carins.repo.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A claim accepted for asynchronous storage and its outcome: {@code claimId} once CREATED, {@code error} once REJECTED.
+ */
+public record ClaimSubmission(String trackingId, Long carId, LocalDate claimDate, String description, BigDecimal amount,
+                              String status, Long claimId, String error, Instant submittedAt, Instant processedAt) {}
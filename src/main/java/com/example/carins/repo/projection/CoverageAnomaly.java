@@ -0,0 +1,13 @@
+package com.example.carins.repo.projection;
+
+import java.time.LocalDate;
+
+/**
+ * A GAP (no policy covers the days) or OVERLAP (two policies cover the days) between two policies of a car.
+ */
+public record CoverageAnomaly(Long id, Long carId, String kind, LocalDate startDate, LocalDate endDate,
+                              Long firstPolicyId, Long secondPolicyId) {
+
+    public static final String GAP = "GAP";
+    public static final String OVERLAP = "OVERLAP";
+}
@@ -0,0 +1,9 @@
+package com.example.carins.repo.projection;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A stored coverage snapshot: the cars insured on {@code snapshotDate} as a serialized bitmap of car ids.
+ */
+public record CoverageSnapshotRow(LocalDate snapshotDate, long insuredCars, byte[] bitmap, Instant computedAt) {}
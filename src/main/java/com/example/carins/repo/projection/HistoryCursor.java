@@ -0,0 +1,29 @@
+package com.example.carins.repo.projection;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Keyset position in a car history, rendered as {@code date,eventId}.
+ * The event id only orders events of the same day and is not meant to be interpreted by clients.
+ */
+public record HistoryCursor(LocalDate date, long eventId) {
+
+    public static HistoryCursor parse(String value) {
+        int comma = value.indexOf(',');
+        if (comma < 0) {
+            throw new IllegalArgumentException("Cursor must look like \"2024-06-20,12\"");
+        }
+        try {
+            return new HistoryCursor(LocalDate.parse(value.substring(0, comma).trim()),
+                    Long.parseLong(value.substring(comma + 1).trim()));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor must look like \"2024-06-20,12\"", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return date + "," + eventId;
+    }
+}
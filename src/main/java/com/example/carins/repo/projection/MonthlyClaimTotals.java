@@ -0,0 +1,6 @@
+package com.example.carins.repo.projection;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+public record MonthlyClaimTotals(YearMonth month, long claimCount, BigDecimal totalAmount) {}
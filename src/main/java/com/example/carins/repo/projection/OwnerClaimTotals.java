@@ -0,0 +1,5 @@
+package com.example.carins.repo.projection;
+
+import java.math.BigDecimal;
+
+public record OwnerClaimTotals(Long ownerId, String ownerName, long claimCount, BigDecimal totalAmount) {}
@@ -0,0 +1,5 @@
+package com.example.carins.repo.projection;
+
+import java.time.LocalDate;
+
+public record PolicyExportRow(Long policyId, Long carId, String vin, String provider, LocalDate startDate, LocalDate endDate) {}
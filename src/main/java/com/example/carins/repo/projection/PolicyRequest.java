@@ -0,0 +1,13 @@
+package com.example.carins.repo.projection;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+public record PolicyRequest(String idempotencyKey, Long carId, String provider, LocalDate startDate, LocalDate endDate,
+                            Long policyId) {
+
+    public boolean sameRequestAs(Long carId, String provider, LocalDate startDate, LocalDate endDate) {
+        return this.carId.equals(carId) && Objects.equals(this.provider, provider)
+                && Objects.equals(this.startDate, startDate) && this.endDate.equals(endDate);
+    }
+}
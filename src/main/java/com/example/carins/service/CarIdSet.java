@@ -0,0 +1,65 @@
+package com.example.carins.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable set of car ids held as a bitmap, bit n standing for car n. Car ids come from an identity column, so they
+ * are dense and one bit per car is as compact as a compressed bitmap would be; set operations are word-wise and
+ * paging walks the set bits in id order.
+ */
+public final class CarIdSet {
+
+    private final BitSet bits;
+    private final int size;
+
+    private CarIdSet(BitSet bits) {
+        this.bits = bits;
+        this.size = bits.cardinality();
+    }
+
+    /**
+     * Takes ownership of {@code bits}; the caller must not change it afterwards.
+     */
+    public static CarIdSet of(BitSet bits) {
+        return new CarIdSet(bits);
+    }
+
+    public static CarIdSet valueOf(byte[] bytes) {
+        return new CarIdSet(BitSet.valueOf(bytes));
+    }
+
+    public byte[] toByteArray() {
+        return bits.toByteArray();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long carId) {
+        return carId >= 0 && carId <= Integer.MAX_VALUE && bits.get((int) carId);
+    }
+
+    /**
+     * Ids in this set and not in {@code other}.
+     */
+    public CarIdSet minus(CarIdSet other) {
+        BitSet difference = (BitSet) bits.clone();
+        difference.andNot(other.bits);
+        return new CarIdSet(difference);
+    }
+
+    /**
+     * Up to {@code limit} ids greater than {@code after}, ascending.
+     */
+    public List<Long> page(long after, int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, size));
+        if (after >= Integer.MAX_VALUE) return ids;
+        for (int id = bits.nextSetBit((int) Math.max(after + 1, 0)); id >= 0 && ids.size() < limit; id = bits.nextSetBit(id + 1)) {
+            ids.add((long) id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.CarRevisionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ETags of the car read endpoints, answered from memory so that checking a tag costs no query. A car's tag is the
+ * revision its last policy or claim write took from {@code car_revision}, the same on every node; the car list's
+ * tag is the number of cars, which only grows. Writes on this node reach the tags when they commit, writes on other
+ * nodes with the next refresh, together with the validity index they describe. Until then a node hands out an
+ * older tag, which only costs the client a full response. Before the first load the tags are read from the
+ * database.
+ */
+@Component
+public class CarRevisionRegistry {
+
+    private final CarRevisionRepository carRevisionRepository;
+    private final CarRepository carRepository;
+    private final PolicyIntervalIndex policyIntervalIndex;
+    private final long refreshLookback;
+    private final Map<Long, Long> revisionByCar = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // one load at a time; it holds the lock across queries, so not a monitor (virtual threads)
+    private final ReentrantLock loadLock = new ReentrantLock();
+    // highest revision loaded so far, guarded by loadLock
+    private long watermark;
+
+    public CarRevisionRegistry(CarRevisionRepository carRevisionRepository, CarRepository carRepository,
+                               PolicyIntervalIndex policyIntervalIndex,
+                               @Value("${carins.validity.index.refresh-lookback:1000}") long refreshLookback) {
+        this.carRevisionRepository = carRevisionRepository;
+        this.carRepository = carRepository;
+        this.policyIntervalIndex = policyIntervalIndex;
+        this.refreshLookback = refreshLookback;
+    }
+
+    /**
+     * Loads the revisions written since the last load, including those of other nodes. The revisions of the last
+     * {@code refresh-lookback} values below the watermark are read again, since a transaction holding a lower one
+     * may commit after a higher one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${carins.validity.index.refresh-interval:30s}",
+            initialDelayString = "${carins.validity.index.refresh-interval:30s}")
+    public void refresh() {
+        loadLock.lock();
+        try {
+            long maxRevision = carRevisionRepository.findMaxRevision(); // read before the rows, like the index
+            carRevisionRepository.forEachRevisionAbove(ready ? Math.max(0, watermark - refreshLookback) : 0, this::apply);
+            watermark = Math.max(watermark, maxRevision);
+            ready = true;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    // synchronous, so the bump commits or rolls back with the write that published the event
+    @EventListener
+    public void onCarsWritten(CarsWrittenEvent event) {
+        carRevisionRepository.bump(event.carIds());
+        Map<Long, Long> revisions = carRevisionRepository.findRevisions(event.carIds());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            revisions.forEach(this::apply);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                revisions.forEach(CarRevisionRegistry.this::apply);
+            }
+        });
+    }
+
+    private void apply(Long carId, Long revision) {
+        revisionByCar.merge(carId, revision, Math::max);
+    }
+
+    public String carTag(Long carId) {
+        long revision = ready ? revisionByCar.getOrDefault(carId, 0L) : carRevisionRepository.findRevision(carId).orElse(0L);
+        return "\"" + carId + "." + revision + "\"";
+    }
+
+    public String carListTag() {
+        long cars = policyIntervalIndex.isReady() ? policyIntervalIndex.carCount() : carRepository.count();
+        return "\"cars." + cars + "\"";
+    }
+}
@@ -1,38 +1,174 @@
 package com.example.carins.service;
 
-import com.example.carins.model.Car;
+import com.example.carins.config.ReadYourWritesTracker;
+import com.example.carins.repo.CarHistoryRepository;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.InsurancePolicyRepository;
-import org.springframework.data.repository.query.Param;
+import com.example.carins.repo.PolicyPeriodRepository;
+import com.example.carins.repo.projection.HistoryCursor;
+import com.example.carins.repo.projection.PolicyPeriod;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.HistoryEventDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Read paths return projections (CarDto, HistoryEventDto, validity flags) and run in read-only transactions, where
+ * Hibernate uses flush mode MANUAL and keeps no dirty-checking snapshots; those transactions read from the replica.
+ */
 @Service
 public class CarService {
 
     private final CarRepository carRepository;
     private final InsurancePolicyRepository policyRepository;
+    private final CarHistoryRepository carHistoryRepository;
+    private final PolicyPeriodRepository policyPeriodRepository;
+    private final PolicyIntervalIndex policyIntervalIndex;
+    private final VinIndex vinIndex;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Counter indexValidityChecks;
+    private final Counter databaseValidityChecks;
 
-    public CarService(CarRepository carRepository, InsurancePolicyRepository policyRepository) {
+    public CarService(CarRepository carRepository, InsurancePolicyRepository policyRepository,
+                      CarHistoryRepository carHistoryRepository, PolicyPeriodRepository policyPeriodRepository,
+                      PolicyIntervalIndex policyIntervalIndex, VinIndex vinIndex, ReadYourWritesTracker readYourWritesTracker,
+                      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
         this.carRepository = carRepository;
         this.policyRepository = policyRepository;
+        this.carHistoryRepository = carHistoryRepository;
+        this.policyPeriodRepository = policyPeriodRepository;
+        this.policyIntervalIndex = policyIntervalIndex;
+        this.vinIndex = vinIndex;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.indexValidityChecks = Counter.builder("carins.validity.checks").tag("source", "index")
+                .description("Insurance validity checks by the store that answered them").register(meterRegistry);
+        this.databaseValidityChecks = Counter.builder("carins.validity.checks").tag("source", "database")
+                .description("Insurance validity checks by the store that answered them").register(meterRegistry);
     }
 
-    public List<Car> listCars() {
-        return carRepository.findAll();
+    /**
+     * Cars with an id greater than {@code afterId} matching the optional filters, ordered by id.
+     * A null {@code limit} returns every match.
+     */
+    @Transactional(readOnly = true)
+    public List<CarDto> listCars(long afterId, Integer limit, String make, String model, Integer year, Long ownerId) {
+        return carRepository.findCarDtos(afterId, make, model, year, ownerId, limit != null ? Limit.of(limit) : Limit.unlimited());
+    }
+
+    @Transactional(readOnly = true)
+    public void streamCars(long afterId, String make, String model, Integer year, Long ownerId, Consumer<CarDto> consumer) {
+        try (Stream<CarDto> cars = carRepository.streamCarDtos(afterId, make, model, year, ownerId)) {
+            cars.forEach(consumer);
+        }
     }
 
     public boolean isInsuranceValid(Long carId, LocalDate date) {
         if (carId == null || date == null) return false;
-        // TODO: optionally throw NotFound if car does not exist
-        return policyRepository.existsActiveOnDate(carId, date);
+        // Served from memory once the index is warm, the query is only a fallback during startup
+        if (policyIntervalIndex.isReady()) {
+            indexValidityChecks.increment();
+            return policyIntervalIndex.isCovered(carId, date);
+        }
+        databaseValidityChecks.increment();
+        return readOnlyTransaction.execute(status -> {
+            readYourWritesTracker.readingCar(carId);
+            return policyRepository.existsActiveOnDate(carId, date);
+        });
+    }
+
+    public boolean carExists(Long carId) {
+        if (carId == null) return false;
+        if (policyIntervalIndex.isReady()) {
+            return policyIntervalIndex.containsCar(carId);
+        }
+        return carRepository.existsById(carId);
+    }
+
+    /**
+     * Coverage of every known car among {@code carIds}; unknown ids are absent from the result.
+     * Served from the interval index when warm, otherwise by one grouped query.
+     */
+    public Map<Long, CoverageIntervals> findCoverage(Collection<Long> carIds) {
+        Map<Long, CoverageIntervals> coverage = new HashMap<>(carIds.size() * 2);
+        if (policyIntervalIndex.isReady()) {
+            for (Long carId : carIds) {
+                if (policyIntervalIndex.containsCar(carId)) {
+                    coverage.put(carId, policyIntervalIndex.coverageOf(carId));
+                }
+            }
+            return coverage;
+        }
+
+        List<PolicyPeriod> periods = policyPeriodRepository.findPeriodsForCars(carIds);
+
+        // rows arrive grouped by car
+        int i = 0;
+        while (i < periods.size()) {
+            Long carId = periods.get(i).carId();
+            long[] starts = new long[4];
+            long[] ends = new long[4];
+            int count = 0;
+            for (; i < periods.size() && periods.get(i).carId().equals(carId); i++) {
+                PolicyPeriod period = periods.get(i);
+                if (period.startDate() == null) continue;
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = CoverageIntervals.startDay(period.startDate());
+                ends[count] = CoverageIntervals.endDay(period.endDate());
+                count++;
+            }
+            coverage.put(carId, CoverageIntervals.of(starts, ends, count));
+        }
+        return coverage;
+    }
+
+    @Transactional(readOnly = true)
+    public CarHistoryRepository.HistoryPage findHistory(Long carId, HistoryCursor after, Integer limit) {
+        readYourWritesTracker.readingCar(carId);
+        return carHistoryRepository.findPage(carId, after, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamHistory(Long carId, HistoryCursor after, Integer limit, Consumer<HistoryEventDto> consumer) {
+        readYourWritesTracker.readingCar(carId);
+        carHistoryRepository.stream(carId, after, limit, consumer);
+    }
+
+    /**
+     * Resolves a VIN from the in-memory VIN index; the query is only a fallback during startup.
+     */
+    public OptionalLong findCarIdByVin(String vin) {
+        if (vinIndex.isReady()) {
+            return vinIndex.find(vin);
+        }
+        return readOnlyTransaction.execute(status -> carRepository.findIdByVin(vin))
+                .map(OptionalLong::of).orElseGet(OptionalLong::empty);
     }
 
-    public Optional<Car> findCarById(Long carId) {
-        return carRepository.findById(carId);
+    @Transactional(readOnly = true)
+    public Optional<CarDto> findCar(Long carId) {
+        return carRepository.findCarDtoById(carId);
     }
 
 }
@@ -0,0 +1,15 @@
+package com.example.carins.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published inside the transaction that writes policies or claims of the cars. The ETag revisions are bumped
+ * within that transaction, the other listeners run after commit.
+ */
+public record CarsWrittenEvent(Collection<Long> carIds) {
+
+    public static CarsWrittenEvent of(Long carId) {
+        return new CarsWrittenEvent(List.of(carId));
+    }
+}
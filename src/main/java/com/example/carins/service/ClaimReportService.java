@@ -0,0 +1,60 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.ClaimRollupRepository;
+import com.example.carins.repo.projection.CarClaimTotals;
+import com.example.carins.repo.projection.MonthlyClaimTotals;
+import com.example.carins.repo.projection.OwnerClaimTotals;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Claim totals for dashboards, read from the per-(car, month) rollup so the cost follows the number of groups,
+ * not the number of claims. Missing bounds mean an open range.
+ */
+@Service
+public class ClaimReportService {
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(1, 1);
+    private static final YearMonth LAST_MONTH = YearMonth.of(9999, 12);
+
+    private final ClaimRollupRepository claimRollupRepository;
+
+    public ClaimReportService(ClaimRollupRepository claimRollupRepository) {
+        this.claimRollupRepository = claimRollupRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CarClaimTotals> totalsByCar(YearMonth from, YearMonth to, long afterCarId, Long ownerId, int limit) {
+        checkRange(from, to);
+        return claimRollupRepository.totalsByCar(orFirst(from), orLast(to), afterCarId, ownerId, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OwnerClaimTotals> totalsByOwner(YearMonth from, YearMonth to, long afterOwnerId, int limit) {
+        checkRange(from, to);
+        return claimRollupRepository.totalsByOwner(orFirst(from), orLast(to), afterOwnerId, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<MonthlyClaimTotals> totalsByMonth(YearMonth from, YearMonth to, Long carId, Long ownerId) {
+        checkRange(from, to);
+        return claimRollupRepository.totalsByMonth(orFirst(from), orLast(to), carId, ownerId);
+    }
+
+    private static void checkRange(YearMonth from, YearMonth to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+    }
+
+    private static YearMonth orFirst(YearMonth month) {
+        return month != null ? month : FIRST_MONTH;
+    }
+
+    private static YearMonth orLast(YearMonth month) {
+        return month != null ? month : LAST_MONTH;
+    }
+}
@@ -4,28 +4,71 @@ import com.example.carins.model.Car;
 import com.example.carins.model.Claim;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.ClaimRollupRepository;
+import com.example.carins.web.dto.ClaimBatchResultDto;
 import com.example.carins.web.dto.ClaimDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ClaimService {
 
     public final ClaimRepository claimRepository;
     public final CarRepository carRepository;
+    private final ClaimRollupRepository claimRollupRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final Counter claimsCreated;
+    private final Counter batchClaimsCreated;
+    private final Counter batchClaimsRejected;
 
-    public ClaimService(ClaimRepository claimRepository, CarRepository carRepository) {
+    // Rows per transaction in batch ingestion; a multiple of hibernate.jdbc.batch_size
+    private static final int INSERT_CHUNK = 500;
+    private static final int CAR_LOOKUP_CHUNK = 1000;
+
+    public ClaimService(ClaimRepository claimRepository, CarRepository carRepository, ClaimRollupRepository claimRollupRepository,
+                        EntityManager entityManager, TransactionTemplate transactionTemplate,
+                        ApplicationEventPublisher eventPublisher,
+                        Validator validator, MeterRegistry meterRegistry) {
         this.claimRepository = claimRepository;
         this.carRepository = carRepository;
+        this.claimRollupRepository = claimRollupRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.claimsCreated = Counter.builder("carins.claims.created").tag("mode", "single").register(meterRegistry);
+        this.batchClaimsCreated = Counter.builder("carins.claims.created").tag("mode", "batch").register(meterRegistry);
+        this.batchClaimsRejected = Counter.builder("carins.claims.rejected").tag("mode", "batch").register(meterRegistry);
     }
 
+    @Transactional
     public long createClaim(Long carId, ClaimDto claimDto) throws NoSuchElementException {
 
         // Check required fields
@@ -41,15 +84,106 @@ public class ClaimService {
 
         Claim claim = new Claim(car.get(), claimDate, description, amount);
         claim = this.claimRepository.save(claim);
+        // same transaction as the claim, so the rollup never counts a claim that was rolled back
+        claimRollupRepository.add(carId, claimDate, 1, amount);
+        eventPublisher.publishEvent(CarsWrittenEvent.of(carId));
+        claimsCreated.increment();
 
         return claim.getId();
     }
 
-    public List<Claim> findClaimsByCarId(Long carId) {
-        return claimRepository.findByCarId(carId);
+    /**
+     * Validates and stores a batch of claims. Car ids are resolved with one query per 1000 ids and claims are
+     * inserted with JDBC batching, one transaction per chunk. Returns one result per input item, in order.
+     */
+    public List<ClaimBatchResultDto> createClaims(List<ClaimDto> claimDtos) {
+        ClaimBatchResultDto[] results = new ClaimBatchResultDto[claimDtos.size()];
+
+        List<Long> carIds = claimDtos.stream().map(ClaimDto::getCarId).filter(id -> id != null).distinct().toList();
+        Set<Long> knownCarIds = new HashSet<>();
+        for (int from = 0; from < carIds.size(); from += CAR_LOOKUP_CHUNK) {
+            knownCarIds.addAll(carRepository.findExistingIds(carIds.subList(from, Math.min(from + CAR_LOOKUP_CHUNK, carIds.size()))));
+        }
+
+        List<Integer> accepted = new ArrayList<>(claimDtos.size());
+        for (int i = 0; i < claimDtos.size(); i++) {
+            ClaimDto claimDto = claimDtos.get(i);
+            if (claimDto == null) {
+                results[i] = ClaimBatchResultDto.failed(i, "Claim is required");
+                continue;
+            }
+
+            Set<ConstraintViolation<ClaimDto>> violations = validator.validate(claimDto);
+            if (!violations.isEmpty()) {
+                results[i] = ClaimBatchResultDto.failed(i, violations.stream()
+                        .map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+            } else if (!knownCarIds.contains(claimDto.getCarId())) {
+                results[i] = ClaimBatchResultDto.failed(i, "Car with ID " + claimDto.getCarId() + " not found");
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        for (int from = 0; from < accepted.size(); from += INSERT_CHUNK) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + INSERT_CHUNK, accepted.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Claim> claims = new ArrayList<>(chunk.size());
+                    for (int i : chunk) {
+                        ClaimDto claimDto = claimDtos.get(i);
+                        // reference only, the car was already checked above
+                        Car car = carRepository.getReferenceById(claimDto.getCarId());
+                        claims.add(new Claim(car, claimDto.getClaimDate(), claimDto.getDescription(), claimDto.getAmount()));
+                    }
+                    claimRepository.saveAll(claims);
+                    claimRollupRepository.addAll(rollupDeltas(claims));
+                    eventPublisher.publishEvent(new CarsWrittenEvent(chunk.stream().map(i -> claimDtos.get(i).getCarId()).distinct().toList()));
+                    entityManager.flush();
+                    entityManager.clear();
+                    for (int k = 0; k < chunk.size(); k++) {
+                        results[chunk.get(k)] = ClaimBatchResultDto.created(chunk.get(k), claims.get(k).getId());
+                    }
+                });
+            } catch (DataAccessException e) {
+                for (int i : chunk) {
+                    results[i] = ClaimBatchResultDto.failed(i, "Could not store claim: " + e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        List<ClaimBatchResultDto> outcome = Arrays.asList(results);
+        long created = outcome.stream().filter(ClaimBatchResultDto::isCreated).count();
+        batchClaimsCreated.increment(created);
+        batchClaimsRejected.increment(outcome.size() - created);
+        return outcome;
     }
 
+    /**
+     * Stores a new or changed claim and moves its contribution in the rollup from the stored values to the new ones.
+     */
+    @Transactional
     public Claim saveClaim(Claim claim) {
-        return claimRepository.save(claim);
+        if (claim.getId() != null) {
+            claimRollupRepository.findStoredContribution(claim.getId())
+                    .ifPresent(stored -> claimRollupRepository.addAll(List.of(stored.negate())));
+        }
+        Claim saved = claimRepository.save(claim);
+        claimRollupRepository.add(saved.getCar().getId(), saved.getClaimDate(), 1, saved.getAmount());
+        eventPublisher.publishEvent(CarsWrittenEvent.of(saved.getCar().getId()));
+        return saved;
     }
+
+    // one delta per (car, month) of the chunk instead of one upsert per claim
+    private static List<ClaimRollupRepository.Delta> rollupDeltas(List<Claim> claims) {
+        Map<RollupKey, ClaimRollupRepository.Delta> deltas = new LinkedHashMap<>();
+        for (Claim claim : claims) {
+            ClaimRollupRepository.Delta delta = new ClaimRollupRepository.Delta(claim.getCar().getId(),
+                    YearMonth.from(claim.getClaimDate()), 1, claim.getAmount());
+            deltas.merge(new RollupKey(delta.carId(), delta.month()), delta, ClaimRollupRepository.Delta::plus);
+        }
+        return new ArrayList<>(deltas.values());
+    }
+
+    private record RollupKey(Long carId, YearMonth month) {}
+
 }
@@ -0,0 +1,183 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.ClaimSubmissionRepository;
+import com.example.carins.repo.ClaimSubmissionRepository.Outcome;
+import com.example.carins.repo.SchedulerLeaseRepository;
+import com.example.carins.repo.projection.ClaimSubmission;
+import com.example.carins.web.dto.ClaimBatchResultDto;
+import com.example.carins.web.dto.ClaimDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+Write-behind claim registration: a submission is appended to claim_submission and acknowledged with a tracking id,
+without reading the car or touching the claim tables. The consumer, on whichever node holds its lease, stores
+PENDING submissions through ClaimService.createClaims in batches, one transaction per batch that first locks the
+submissions still PENDING and then records each outcome, so a submission is stored exactly once even when a
+consumer outlives its lease and another node starts reading the same rows. The lease is renewed before every
+batch and the run stops as soon as it is lost. A batch that cannot be committed is retried one submission at a
+time, so one bad claim cannot hold up the queue.
+ */
+@Service
+public class ClaimSubmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClaimSubmissionService.class);
+
+    private static final String LEASE_NAME = "claim-submissions";
+
+    private final ClaimSubmissionRepository submissionRepository;
+    private final SchedulerLeaseRepository leaseRepository;
+    private final ClaimService claimService;
+    private final PolicyIntervalIndex policyIntervalIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxPerRun;
+    private final Duration leaseDuration;
+    private final Duration retention;
+    private final String nodeId = SchedulerLeaseRepository.newOwnerId();
+
+    private final Counter submitted;
+    private final Timer batchTimer;
+
+    public ClaimSubmissionService(ClaimSubmissionRepository submissionRepository, SchedulerLeaseRepository leaseRepository,
+                                  ClaimService claimService, PolicyIntervalIndex policyIntervalIndex,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${carins.claims.async.batch-size:500}") int batchSize,
+                                  @Value("${carins.claims.async.max-per-run:50000}") int maxPerRun,
+                                  @Value("${carins.claims.async.lease-duration:1m}") Duration leaseDuration,
+                                  @Value("${carins.claims.async.retention:7d}") Duration retention,
+                                  MeterRegistry meterRegistry) {
+        this.submissionRepository = submissionRepository;
+        this.leaseRepository = leaseRepository;
+        this.claimService = claimService;
+        this.policyIntervalIndex = policyIntervalIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxPerRun = maxPerRun;
+        this.leaseDuration = leaseDuration;
+        this.retention = retention;
+        this.submitted = Counter.builder("carins.claims.submitted").register(meterRegistry);
+        this.batchTimer = Timer.builder("carins.claims.submissions.batch")
+                .description("Time to store one batch of submitted claims").register(meterRegistry);
+        Gauge.builder("carins.claims.submissions.pending", submissionRepository,
+                        repo -> repo.countByStatus(ClaimSubmissionRepository.PENDING))
+                .description("Submitted claims waiting to be stored").register(meterRegistry);
+    }
+
+    /**
+     * Queues the claim and returns its tracking id. Cars unknown to the validity index are refused right away;
+     * anything else the batch validation rejects shows up as REJECTED on the submission.
+     */
+    public String submit(Long carId, ClaimDto claimDto) throws NoSuchElementException {
+        if (policyIntervalIndex.isReady() && !policyIntervalIndex.containsCar(carId)) {
+            throw new NoSuchElementException("Car with ID " + carId + " not found");
+        }
+        String trackingId = UUID.randomUUID().toString();
+        submissionRepository.insert(new ClaimSubmission(trackingId, carId, claimDto.getClaimDate(),
+                claimDto.getDescription(), claimDto.getAmount(), ClaimSubmissionRepository.PENDING, null, null,
+                Instant.now(), null));
+        submitted.increment();
+        return trackingId;
+    }
+
+    public Optional<ClaimSubmission> findSubmission(String trackingId) {
+        return submissionRepository.findByTrackingId(trackingId);
+    }
+
+    @Scheduled(fixedDelayString = "${carins.claims.async.poll-interval:1s}")
+    public void consumeSubmissions() {
+        processPending();
+    }
+
+    /**
+     * Stores PENDING submissions, oldest first, until none is left or {@code max-per-run} were processed, then
+     * drops processed submissions past their retention. Returns the number processed by this node.
+     */
+    public int processPending() {
+        if (!leaseRepository.tryAcquire(LEASE_NAME, nodeId, leaseDuration)) return 0; // another node is consuming
+        try {
+            int processed = 0;
+            List<ClaimSubmission> batch;
+            do {
+                if (processed > 0 && !leaseRepository.renew(LEASE_NAME, nodeId, leaseDuration)) {
+                    logger.warn("Lost the {} lease after {} submitted claims, stopping this run", LEASE_NAME, processed);
+                    return processed;
+                }
+                batch = submissionRepository.findPending(batchSize);
+                if (batch.isEmpty()) break;
+                List<ClaimSubmission> current = batch;
+                batchTimer.record(() -> store(current));
+                processed += batch.size();
+            } while (batch.size() == batchSize && processed < maxPerRun);
+
+            int deleted = submissionRepository.deleteProcessedBefore(Instant.now().minus(retention));
+            if (processed > 0 || deleted > 0) {
+                logger.info("Processed {} submitted claims, removed {} past retention", processed, deleted);
+            }
+            return processed;
+        } finally {
+            leaseRepository.release(LEASE_NAME, nodeId);
+        }
+    }
+
+    private void store(List<ClaimSubmission> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> storeInTransaction(batch, new ArrayList<>()));
+        } catch (DataAccessException | TransactionException e) {
+            logger.warn("Batch of {} submitted claims failed, storing them one by one: {}", batch.size(), e.getMessage());
+            for (ClaimSubmission submission : batch) {
+                List<Outcome> attempted = new ArrayList<>(1);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> storeInTransaction(List.of(submission), attempted));
+                } catch (DataAccessException | TransactionException single) {
+                    // a failed insert only marks the transaction rollback-only, so the commit reports a rollback;
+                    // the outcome from createClaims still carries the actual cause
+                    String error = !attempted.isEmpty() && attempted.get(0).error() != null ? attempted.get(0).error()
+                            : "Could not store claim: " + single.getMostSpecificCause().getMessage();
+                    submissionRepository.markProcessed(List.of(new Outcome(submission.trackingId(), null, error)), Instant.now());
+                }
+            }
+        }
+    }
+
+    // collects the outcomes into attempted before they are written, for the caller to report if the commit fails
+    private void storeInTransaction(List<ClaimSubmission> batch, List<Outcome> attempted) {
+        List<ClaimSubmission> pending = submissionRepository.lockPending(
+                batch.stream().map(ClaimSubmission::trackingId).toList());
+        if (pending.isEmpty()) return; // stored by another consumer meanwhile
+
+        List<ClaimDto> claims = pending.stream()
+                .map(s -> new ClaimDto(s.carId(), s.claimDate(), s.description(), s.amount()))
+                .toList();
+        List<ClaimBatchResultDto> results = claimService.createClaims(claims);
+
+        for (int i = 0; i < pending.size(); i++) {
+            attempted.add(new Outcome(pending.get(i).trackingId(), results.get(i).claimId(), results.get(i).error()));
+        }
+        boolean[] updated = submissionRepository.markProcessed(attempted, Instant.now());
+        for (int i = 0; i < updated.length; i++) {
+            if (!updated[i]) {
+                throw new OptimisticLockingFailureException("Submission " + attempted.get(i).trackingId() + " is no longer pending");
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CoverageAnomalyRepository;
+import com.example.carins.repo.projection.CoverageAnomaly;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Coverage gaps and overlaps for compliance. One pass over all policies ordered by (car_id, start_date): per car the
+sweep keeps the furthest end date seen so far and the policy that reached it, so every policy is compared with
+the coverage before it instead of with every other policy of the car. Results replace coverage_anomaly in one
+transaction, readers see either the previous or the new run.
+ */
+@Service
+public class CoverageGapScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverageGapScheduler.class);
+
+    private static final int INSERT_CHUNK = 500;
+    // stored end of an overlap between two open-ended policies
+    private static final LocalDate OPEN_END_DATE = LocalDate.of(9999, 12, 31);
+
+    private final CoverageAnomalyRepository coverageAnomalyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer jobTimer;
+    private final AtomicLong lastGaps = new AtomicLong();
+    private final AtomicLong lastOverlaps = new AtomicLong();
+
+    public CoverageGapScheduler(CoverageAnomalyRepository coverageAnomalyRepository, TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry) {
+        this.coverageAnomalyRepository = coverageAnomalyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jobTimer = Timer.builder("carins.coverage.job").description("Duration of coverage anomaly detection runs").register(meterRegistry);
+        Gauge.builder("carins.coverage.anomalies", lastGaps, AtomicLong::get).tag("kind", CoverageAnomaly.GAP)
+                .description("Anomalies found by the last coverage run").register(meterRegistry);
+        Gauge.builder("carins.coverage.anomalies", lastOverlaps, AtomicLong::get).tag("kind", CoverageAnomaly.OVERLAP)
+                .description("Anomalies found by the last coverage run").register(meterRegistry);
+    }
+
+    // After the expiry job, policies rarely change overnight
+    @Scheduled(cron = "0 30 0 * * *", zone = "GMT+3")
+    public void checkCoverage() {
+        detectAnomalies();
+    }
+
+    /**
+     * Recomputes all gaps and overlaps and returns how many were found.
+     */
+    public int detectAnomalies() {
+        return jobTimer.record(() -> transactionTemplate.execute(status -> sweep()));
+    }
+
+    private int sweep() {
+        Instant detectedAt = Instant.now();
+        coverageAnomalyRepository.deleteAll();
+
+        Sweep sweep = new Sweep(detectedAt);
+        coverageAnomalyRepository.streamPoliciesInSweepOrder(rs -> sweep.accept(rs.getLong("id"), rs.getLong("car_id"),
+                rs.getObject("start_date", LocalDate.class), rs.getObject("end_date", LocalDate.class)));
+        sweep.flush();
+
+        lastGaps.set(sweep.gaps);
+        lastOverlaps.set(sweep.overlaps);
+        logger.info("Coverage check found {} gaps and {} overlaps", sweep.gaps, sweep.overlaps);
+        return sweep.gaps + sweep.overlaps;
+    }
+
+    // Per-car sweep state; policies arrive ordered by (car_id, start_date, id)
+    private final class Sweep {
+        private final Instant detectedAt;
+        private final List<CoverageAnomaly> pending = new ArrayList<>(INSERT_CHUNK);
+        private long carId = -1;
+        private long coveredUntil;   // last covered epoch day of the car so far, Long.MAX_VALUE when open-ended
+        private long coveringPolicy; // policy that reaches coveredUntil
+        private int gaps;
+        private int overlaps;
+
+        Sweep(Instant detectedAt) {
+            this.detectedAt = detectedAt;
+        }
+
+        void accept(long policyId, long policyCarId, LocalDate startDate, LocalDate endDate) {
+            long start = CoverageIntervals.startDay(startDate);
+            long end = CoverageIntervals.endDay(endDate);
+            if (policyCarId != carId) {
+                carId = policyCarId;
+                coveredUntil = end;
+                coveringPolicy = policyId;
+                return;
+            }
+
+            if (coveredUntil != Long.MAX_VALUE && start > coveredUntil + 1) {
+                add(CoverageAnomaly.GAP, coveredUntil + 1, start - 1, policyId);
+                gaps++;
+            } else if (start <= coveredUntil) {
+                add(CoverageAnomaly.OVERLAP, start, Math.min(end, coveredUntil), policyId);
+                overlaps++;
+            }
+            if (end > coveredUntil) {
+                coveredUntil = end;
+                coveringPolicy = policyId;
+            }
+        }
+
+        private void add(String kind, long fromDay, long toDay, long policyId) {
+            pending.add(new CoverageAnomaly(null, carId, kind, LocalDate.ofEpochDay(fromDay),
+                    toDay == Long.MAX_VALUE ? OPEN_END_DATE : LocalDate.ofEpochDay(toDay), coveringPolicy, policyId));
+            if (pending.size() == INSERT_CHUNK) flush();
+        }
+
+        void flush() {
+            coverageAnomalyRepository.insertAll(pending, detectedAt);
+            pending.clear();
+        }
+    }
+}
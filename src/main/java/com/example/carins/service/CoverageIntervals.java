@@ -0,0 +1,84 @@
+package com.example.carins.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Immutable coverage periods of one car, stored as disjoint inclusive [start, end] ranges of epoch days.
+ * Overlapping and adjacent policies are merged, so a lookup is a single binary search.
+ */
+public final class CoverageIntervals {
+
+    public static final CoverageIntervals EMPTY = new CoverageIntervals(new long[0], new long[0]);
+
+    // open-ended policies (endDate == null) never stop covering
+    private static final long OPEN_END = Long.MAX_VALUE;
+
+    private final long[] starts;
+    private final long[] ends;
+
+    private CoverageIntervals(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Builds the merged intervals from the first {@code count} unsorted raw periods; both arrays are left untouched.
+     */
+    public static CoverageIntervals of(long[] starts, long[] ends, int count) {
+        if (count == 0) return EMPTY;
+
+        long[][] pairs = new long[count][];
+        for (int i = 0; i < count; i++) {
+            pairs[i] = new long[]{starts[i], ends[i]};
+        }
+        Arrays.sort(pairs, (a, b) -> Long.compare(a[0], b[0]));
+
+        long[] mergedStarts = new long[count];
+        long[] mergedEnds = new long[count];
+        int size = 0;
+        for (long[] pair : pairs) {
+            if (size > 0 && (mergedEnds[size - 1] == OPEN_END || pair[0] <= mergedEnds[size - 1] + 1)) {
+                mergedEnds[size - 1] = Math.max(mergedEnds[size - 1], pair[1]);
+            } else {
+                mergedStarts[size] = pair[0];
+                mergedEnds[size] = pair[1];
+                size++;
+            }
+        }
+        return new CoverageIntervals(Arrays.copyOf(mergedStarts, size), Arrays.copyOf(mergedEnds, size));
+    }
+
+    public static long startDay(LocalDate startDate) {
+        return startDate.toEpochDay();
+    }
+
+    public static long endDay(LocalDate endDate) {
+        return endDate == null ? OPEN_END : endDate.toEpochDay();
+    }
+
+    /**
+     * Returns a copy with one more period merged in; the receiver is left untouched.
+     */
+    public CoverageIntervals with(long start, long end) {
+        long[] newStarts = Arrays.copyOf(starts, starts.length + 1);
+        long[] newEnds = Arrays.copyOf(ends, ends.length + 1);
+        newStarts[starts.length] = start;
+        newEnds[ends.length] = end;
+        return of(newStarts, newEnds, newStarts.length);
+    }
+
+    public boolean covers(LocalDate date) {
+        return covers(date.toEpochDay());
+    }
+
+    public boolean covers(long epochDay) {
+        int i = Arrays.binarySearch(starts, epochDay);
+        if (i < 0) i = -i - 2; // last interval starting before the day
+        return i >= 0 && ends[i] >= epochDay;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CoverageAnomalyRepository;
+import com.example.carins.repo.projection.CoverageAnomaly;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Serves the coverage gaps and overlaps precomputed by {@link CoverageGapScheduler}.
+ */
+@Service
+public class CoverageReportService {
+
+    private final CoverageAnomalyRepository coverageAnomalyRepository;
+
+    public CoverageReportService(CoverageAnomalyRepository coverageAnomalyRepository) {
+        this.coverageAnomalyRepository = coverageAnomalyRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CoverageAnomaly> findAnomalies(Long carId, String kind, long afterId, int limit) {
+        return coverageAnomalyRepository.findPage(carId, kind, afterId, limit);
+    }
+}
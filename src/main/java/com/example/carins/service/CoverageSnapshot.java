@@ -0,0 +1,9 @@
+package com.example.carins.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * The cars with an active policy on {@code date}, as computed at {@code computedAt}.
+ */
+public record CoverageSnapshot(LocalDate date, Instant computedAt, CarIdSet insuredCars) {}
@@ -0,0 +1,135 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CoverageSnapshotRepository;
+import com.example.carins.repo.projection.CoverageSnapshotRow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+Point-in-time coverage for regulator reports ("all cars insured on date D"). The first request for a date scans
+insurancepolicy once and stores the insured car ids as a bitmap in coverage_snapshot; later requests, on any node,
+load the stored bitmap, and each node keeps the most recently used dates in memory. Counting, paging and diffing
+then work on the bitmaps alone.
+
+A created policy changes the answer for every date it covers, so once it is committed those dates are dropped from
+memory and from the table. Loads hold the read lock and invalidation the write lock: a snapshot computed while a
+policy was being committed is dropped along with the others rather than cached. Like the in-memory validity index,
+the memory of other nodes only learns about policies created there, so they may serve a dropped date until it is
+evicted.
+
+The table is shared, so a node could otherwise store a snapshot scanned just before another node's policy was
+committed, after that node had already dropped the date. Every invalidation therefore bumps a generation in the
+transaction that deletes the snapshots; a build reads the generation before its scan and stores the result only if
+the generation is unchanged, holding its row lock while it writes. A build that loses the race scans again, up to
+MAX_BUILD_ATTEMPTS times, and otherwise answers from its last scan without storing it.
+ */
+@Service
+public class CoverageSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverageSnapshotService.class);
+
+    private static final int MAX_BUILD_ATTEMPTS = 3;
+
+    private final CoverageSnapshotRepository snapshotRepository;
+    private final Cache<LocalDate, CoverageSnapshot> snapshots;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TransactionTemplate newTransaction;
+    private final Timer buildTimer;
+
+    public CoverageSnapshotService(CoverageSnapshotRepository snapshotRepository,
+                                   @Value("${carins.coverage.snapshots.cache-size:32}") int cacheSize,
+                                   PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.snapshotRepository = snapshotRepository;
+        // invalidation also runs after the commit of the policy's transaction, whose resources are still bound
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshots = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+        this.buildTimer = Timer.builder("carins.coverage.snapshot.build")
+                .description("Time to compute and store the coverage snapshot of one date").register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "coverage-snapshots");
+    }
+
+    /**
+     * The cars insured on {@code date}, from memory, the stored snapshot, or a scan of the policies, in that order.
+     */
+    public CoverageSnapshot snapshot(LocalDate date) {
+        lock.readLock().lock();
+        try {
+            return snapshots.get(date, this::load);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyCreated(PolicyCreatedEvent event) {
+        invalidate(event.startDate(), event.endDate());
+    }
+
+    /**
+     * Drops the snapshots dated {@code from} to {@code to}, both inclusive, after policies covering those days were
+     * written. A null {@code to} means open-ended; a null {@code from} (a policy that never starts) drops nothing.
+     */
+    public void invalidate(LocalDate from, LocalDate to) {
+        if (from == null) return;
+        lock.writeLock().lock();
+        try {
+            snapshots.asMap().keySet().removeIf(date -> !date.isBefore(from) && (to == null || !date.isAfter(to)));
+            newTransaction.executeWithoutResult(status -> {
+                snapshotRepository.bumpGeneration();
+                snapshotRepository.deleteBetween(from, to);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private CoverageSnapshot load(LocalDate date) {
+        return snapshotRepository.find(date)
+                .map(row -> new CoverageSnapshot(date, row.computedAt(), CarIdSet.valueOf(row.bitmap())))
+                .orElseGet(() -> buildTimer.record(() -> build(date)));
+    }
+
+    private CoverageSnapshot build(LocalDate date) {
+        long started = System.nanoTime();
+        CoverageSnapshot snapshot = null;
+        for (int attempt = 1; attempt <= MAX_BUILD_ATTEMPTS; attempt++) {
+            long generation = snapshotRepository.currentGeneration();
+            snapshot = new CoverageSnapshot(date, Instant.now(), CarIdSet.of(snapshotRepository.findInsuredCarIds(date)));
+            if (storeIfCurrent(snapshot, generation)) {
+                logger.info("Coverage snapshot for {}: {} insured cars in {} ms",
+                        date, snapshot.insuredCars().size(), (System.nanoTime() - started) / 1_000_000);
+                return snapshot;
+            }
+        }
+        logger.warn("Coverage snapshot for {} not stored: policies were created during each of {} scans",
+                date, MAX_BUILD_ATTEMPTS);
+        return snapshot;
+    }
+
+    // false when an invalidation ran since the generation was read, i.e. the scan may have missed its policies
+    private boolean storeIfCurrent(CoverageSnapshot snapshot, long generation) {
+        return newTransaction.execute(status -> {
+            if (!snapshotRepository.lockGenerationIfCurrent(generation)) return false;
+            snapshotRepository.save(new CoverageSnapshotRow(snapshot.date(), snapshot.insuredCars().size(),
+                    snapshot.insuredCars().toByteArray(), snapshot.computedAt()));
+            return true;
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.carins.service;
+
+import com.example.carins.config.NotificationProperties;
+import com.example.carins.repo.NotificationOutboxRepository;
+import com.example.carins.repo.NotificationOutboxRepository.DueNotice;
+import com.example.carins.repo.SchedulerLeaseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+Proactive counterpart of PolicyExpiryScheduler: policies ending in the next horizon-days are queued in
+notification_outbox (one notice per policy and end date) and sent to their owners, one message per owner.
+Delivery is at least once: a notice is marked SENT after the sender returned, a crash in between resends it.
+Every node queues; when two nodes queue the same notices at once, the unique index lets one of them in and the
+other treats the duplicate as already queued and only adds what is still missing.
+Only the node holding the dispatch lease sends, renewing it before every batch, so nodes do not send the same
+due notices side by side; a run that loses the lease stops after its current batch.
+ */
+@Service
+public class ExpiryNotificationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryNotificationScheduler.class);
+
+    private static final String LEASE_NAME = "expiry-notifications";
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final SchedulerLeaseRepository leaseRepository;
+    private final NotificationSender sender;
+    private final NotificationProperties properties;
+    private final String nodeId = SchedulerLeaseRepository.newOwnerId();
+
+    private final Counter enqueued;
+    private final Counter sent;
+    private final Counter failedAttempts;
+
+    public ExpiryNotificationScheduler(NotificationOutboxRepository outboxRepository, SchedulerLeaseRepository leaseRepository,
+                                       NotificationSender sender, NotificationProperties properties, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.leaseRepository = leaseRepository;
+        this.sender = sender;
+        this.properties = properties;
+        this.enqueued = Counter.builder("carins.notifications.enqueued").register(meterRegistry);
+        this.sent = Counter.builder("carins.notifications.sent").register(meterRegistry);
+        this.failedAttempts = Counter.builder("carins.notifications.failed.attempts").register(meterRegistry);
+        Gauge.builder("carins.notifications.pending", outboxRepository, repo -> repo.countByStatus(NotificationOutboxRepository.PENDING))
+                .description("Notices waiting to be sent").register(meterRegistry);
+    }
+
+    // Queue once a day, send every dispatch-interval so retries are picked up without waiting a day
+    @Scheduled(cron = "0 15 0 * * *", zone = "GMT+3")
+    public void queueUpcomingExpiries() {
+        enqueueUpcomingExpiries(LocalDate.now());
+    }
+
+    @Scheduled(fixedDelayString = "${carins.notifications.dispatch-interval:10m}",
+            initialDelayString = "${carins.notifications.dispatch-interval:10m}")
+    public void sendPendingNotifications() {
+        dispatchPending(Instant.now());
+    }
+
+    /**
+     * Queues notices for policies ending between {@code today} and {@code today + horizonDays}.
+     * Returns the number of new notices.
+     */
+    public int enqueueUpcomingExpiries(LocalDate today) {
+        LocalDate until = today.plusDays(properties.horizonDays());
+        int added;
+        try {
+            added = outboxRepository.enqueueExpiringBetween(today, until, Instant.now());
+        } catch (DuplicateKeyException e) {
+            // another node queued some of these notices concurrently; they are committed now, so the rerun skips them
+            logger.debug("Upcoming-expiry notices were queued by another node meanwhile, queueing the rest");
+            added = outboxRepository.enqueueExpiringBetween(today, until, Instant.now());
+        }
+        enqueued.increment(added);
+        logger.info("Queued {} upcoming-expiry notices", added);
+        return added;
+    }
+
+    /**
+     * Sends due notices in batches of {@code batchSize} owners, at most {@code maxPerRun} notices per run.
+     * The sender is called synchronously, so a slow channel slows the run down instead of piling up work, and a
+     * failed batch ends the run early rather than pushing more into a failing channel.
+     * Returns the number of notices delivered, 0 when another node holds the dispatch lease.
+     */
+    public int dispatchPending(Instant now) {
+        if (!leaseRepository.tryAcquire(LEASE_NAME, nodeId, properties.leaseDuration())) return 0; // another node is sending
+        try {
+            return dispatchUnderLease(now);
+        } finally {
+            leaseRepository.release(LEASE_NAME, nodeId);
+        }
+    }
+
+    private int dispatchUnderLease(Instant now) {
+        int handled = 0;
+        int delivered = 0;
+        long afterOwnerId = 0;
+
+        while (handled < properties.maxPerRun()) {
+            if (handled > 0 && !leaseRepository.renew(LEASE_NAME, nodeId, properties.leaseDuration())) {
+                logger.warn("Lost the {} lease after {} notices, stopping this run", LEASE_NAME, handled);
+                break;
+            }
+            List<Long> owners = outboxRepository.findOwnersWithDueNotices(afterOwnerId, now, properties.batchSize());
+            if (owners.isEmpty()) break;
+            afterOwnerId = owners.get(owners.size() - 1);
+
+            List<DueNotice> due = outboxRepository.findDueNotices(owners.get(0), afterOwnerId, now);
+            List<OwnerExpiryNotice> batch = groupByOwner(due);
+            List<Long> ids = due.stream().map(DueNotice::id).toList();
+            handled += ids.size();
+
+            try {
+                sender.send(batch);
+            } catch (RuntimeException e) {
+                scheduleRetry(due, now, e.getMessage());
+                failedAttempts.increment(ids.size());
+                logger.warn("Sending {} notices to {} owners failed, retrying later: {}", ids.size(), batch.size(), e.getMessage());
+                break;
+            }
+            outboxRepository.markSent(ids, Instant.now());
+            sent.increment(ids.size());
+            delivered += ids.size();
+        }
+
+        if (delivered > 0) logger.info("Sent {} upcoming-expiry notices", delivered);
+        return delivered;
+    }
+
+    private void scheduleRetry(List<DueNotice> due, Instant now, String error) {
+        // exponential backoff on the number of attempts each notice already had
+        Map<Integer, List<Long>> idsByAttempts = new TreeMap<>();
+        for (DueNotice notice : due) {
+            idsByAttempts.computeIfAbsent(notice.attempts(), a -> new ArrayList<>()).add(notice.id());
+        }
+        idsByAttempts.forEach((attempts, ids) -> {
+            Duration delay = properties.retryBackoff().multipliedBy(1L << Math.min(attempts, 20));
+            outboxRepository.markAttemptFailed(ids, now.plus(delay), properties.maxAttempts(), error);
+        });
+    }
+
+    private static List<OwnerExpiryNotice> groupByOwner(List<DueNotice> due) {
+        Map<Long, List<OwnerExpiryNotice.ExpiringPolicy>> policiesByOwner = new LinkedHashMap<>();
+        Map<Long, DueNotice> firstByOwner = new LinkedHashMap<>();
+        for (DueNotice notice : due) {
+            firstByOwner.putIfAbsent(notice.ownerId(), notice);
+            policiesByOwner.computeIfAbsent(notice.ownerId(), id -> new ArrayList<>())
+                    .add(new OwnerExpiryNotice.ExpiringPolicy(notice.policyId(), notice.carId(), notice.vin(), notice.endDate()));
+        }
+        List<OwnerExpiryNotice> notices = new ArrayList<>(policiesByOwner.size());
+        policiesByOwner.forEach((ownerId, policies) -> {
+            DueNotice owner = firstByOwner.get(ownerId);
+            notices.add(new OwnerExpiryNotice(ownerId, owner.ownerName(), owner.ownerEmail(), policies));
+        });
+        return notices;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.ExportRepository;
+import com.example.carins.repo.projection.ClaimExportRow;
+import com.example.carins.repo.projection.PolicyExportRow;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Bulk exports for offline analysis. Each export is one read-only transaction on the replica pool, held open
+ * while the consumer writes the rows out; missing bounds mean an open range.
+ */
+@Service
+public class ExportService {
+
+    private final ExportRepository exportRepository;
+
+    public ExportService(ExportRepository exportRepository) {
+        this.exportRepository = exportRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public void exportPolicies(LocalDate endFrom, LocalDate endTo, Consumer<PolicyExportRow> consumer) {
+        exportRepository.streamPolicies(endFrom, endTo, consumer);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportClaims(LocalDate claimFrom, LocalDate claimTo, Consumer<ClaimExportRow> consumer) {
+        exportRepository.streamClaims(claimFrom, claimTo, consumer);
+    }
+}
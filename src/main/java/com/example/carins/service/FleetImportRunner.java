@@ -0,0 +1,33 @@
+package com.example.carins.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Imports {@code --carins.import.file=<path>} at startup. Runners run once the web server is already listening, so
+ * the import is not hidden from requests; what it holds back is readiness: {@code /actuator/health/readiness}
+ * reports OUT_OF_SERVICE until the import is done, keeping a load balancer from routing traffic here meanwhile.
+ * A failed import stops the startup; starting again with the same file resumes it.
+ */
+@Component
+@ConditionalOnProperty("carins.import.file")
+public class FleetImportRunner implements ApplicationRunner {
+
+    private final FleetImportService fleetImportService;
+    private final Path file;
+
+    public FleetImportRunner(FleetImportService fleetImportService, @Value("${carins.import.file}") Path file) {
+        this.fleetImportService = fleetImportService;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        fleetImportService.importFile(file);
+    }
+}
@@ -0,0 +1,496 @@
+package com.example.carins.service;
+
+import com.example.carins.model.JobCheckpoint;
+import com.example.carins.repo.FleetImportRepository;
+import com.example.carins.repo.FleetImportRepository.NewCar;
+import com.example.carins.repo.FleetImportRepository.NewOwner;
+import com.example.carins.repo.FleetImportRepository.NewPolicy;
+import com.example.carins.repo.JobCheckpointRepository;
+import com.example.carins.web.dto.FleetImportRowDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+Bulk import of owners, cars and policies from CSV (header row, columns named after FleetImportRowDto) or NDJSON.
+A reader thread walks the file through memory-mapped windows and hands chunks of lines to a pool of validation
+workers; the writer takes the parsed chunks back in file order from a bounded queue, so at most a few chunks are
+in memory whatever the file size. Each chunk is one transaction: owners are resolved by email with one query,
+missing owners, cars and policies go in as JDBC batches, and the checkpoint moves to the chunk's last line.
+An interrupted import started again on the same file resumes after that line. The checkpoint is keyed on a SHA-256
+of the file's contents, so a corrected file resumes nowhere even with the same name and size, while a renamed or
+copied one still does. Cars whose VIN already exists are skipped, so running a finished file again changes nothing.
+ */
+@Service
+public class FleetImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetImportService.class);
+
+    private static final String CHECKPOINT_NAME = "fleet-import";
+    private static final Set<String> REQUIRED_COLUMNS = Set.of("vin", "yearOfManufacture", "ownerName", "ownerEmail");
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final FleetImportRepository fleetImportRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final VinIndex vinIndex;
+    private final PolicyIntervalIndex policyIntervalIndex;
+    private final CoverageSnapshotService coverageSnapshotService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache secondLevelCache;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int workers;
+    private final int windowBytes;
+
+    private final Counter rowsImported;
+    private final Counter rowsSkipped;
+    private final Counter rowsRejected;
+
+    public FleetImportService(FleetImportRepository fleetImportRepository, JobCheckpointRepository jobCheckpointRepository,
+                              VinIndex vinIndex, PolicyIntervalIndex policyIntervalIndex,
+                              CoverageSnapshotService coverageSnapshotService, TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher, EntityManagerFactory entityManagerFactory,
+                              Validator validator, ObjectMapper objectMapper,
+                              @Value("${carins.import.chunk-size:1000}") int chunkSize,
+                              @Value("${carins.import.workers:4}") int workers,
+                              @Value("${carins.import.window-size:64MB}") DataSize windowSize,
+                              MeterRegistry meterRegistry) {
+        this.fleetImportRepository = fleetImportRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.vinIndex = vinIndex;
+        this.policyIntervalIndex = policyIntervalIndex;
+        this.coverageSnapshotService = coverageSnapshotService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.secondLevelCache = entityManagerFactory.getCache().unwrap(Cache.class);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+        this.windowBytes = (int) Math.min(windowSize.toBytes(), Integer.MAX_VALUE);
+        this.rowsImported = Counter.builder("carins.import.rows").tag("outcome", "imported").register(meterRegistry);
+        this.rowsSkipped = Counter.builder("carins.import.rows").tag("outcome", "skipped").register(meterRegistry);
+        this.rowsRejected = Counter.builder("carins.import.rows").tag("outcome", "rejected").register(meterRegistry);
+    }
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    /**
+     * Outcome of one run. {@code rows} counts the non-blank data lines read by this run, after any resumed part;
+     * {@code rejections} holds the first rejected rows as {@code "line <n>: <reason>"}.
+     */
+    public record Result(long rows, long imported, long skipped, long rejected, long policies, long resumedAfterLine,
+                         Duration elapsed, List<String> rejections) {
+
+        public double rowsPerSecond() {
+            return elapsed.isZero() ? 0 : rows * 1_000_000_000d / elapsed.toNanos();
+        }
+    }
+
+    public Result importFile(Path file) throws IOException {
+        return importFile(file, Format.of(file));
+    }
+
+    public Result importFile(Path file, Format format) throws IOException {
+        if (!vinIndex.isReady()) {
+            vinIndex.rebuild(); // imports started from the command line run before the application is ready
+        }
+        String checkpointName = CHECKPOINT_NAME + "/" + contentHash(file);
+        Run run = new Run(file, jobCheckpointRepository.findById(checkpointName)
+                .orElseGet(() -> new JobCheckpoint(checkpointName, null, 0L)));
+        if (run.resumedAfterLine > 0) {
+            logger.info("Fleet import of {} resumes after line {}", file, run.resumedAfterLine);
+        }
+
+        ExecutorService validators = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("fleet-import-", 1).factory());
+        BlockingQueue<CompletableFuture<ParsedChunk>> parsed = new ArrayBlockingQueue<>(workers * 2);
+        Thread reader = Thread.ofPlatform().name("fleet-import-reader")
+                .start(() -> readChunks(file, format, run.resumedAfterLine, validators, parsed));
+        try {
+            for (ParsedChunk chunk = next(parsed); chunk != ParsedChunk.END; chunk = next(parsed)) {
+                write(chunk, run);
+            }
+        } finally {
+            reader.interrupt();
+            validators.shutdownNow();
+        }
+
+        Result result = run.result();
+        logger.info("Fleet import of {} finished: {} rows, {} imported, {} skipped, {} rejected in {} ms ({} rows/s)",
+                file, result.rows(), result.imported(), result.skipped(), result.rejected(),
+                result.elapsed().toMillis(), Math.round(result.rowsPerSecond()));
+        return result;
+    }
+
+    // One sequential pass over the file before the import starts, against re-reading it all after a crash
+    private static String contentHash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE provides SHA-256
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Reader thread: cuts the file into chunks and queues their validation, blocking while the writer is behind
+    private void readChunks(Path file, Format format, long resumeAfterLine, ExecutorService validators,
+                            BlockingQueue<CompletableFuture<ParsedChunk>> parsed) {
+        try (MappedLineReader lines = new MappedLineReader(file, windowBytes)) {
+            RowParser parser = format == Format.CSV ? csvParser(lines.readLine()) : this::parseJson;
+            List<String> chunk = new ArrayList<>(chunkSize);
+            long firstLine = 0;
+            for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                if (lines.lineNumber() <= resumeAfterLine) continue;
+                if (chunk.isEmpty()) firstLine = lines.lineNumber();
+                chunk.add(line);
+                if (chunk.size() == chunkSize) {
+                    submit(parsed, validators, parser, firstLine, chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) submit(parsed, validators, parser, firstLine, chunk);
+            parsed.put(CompletableFuture.completedFuture(ParsedChunk.END));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // the writer gave up
+        } catch (Exception e) {
+            try {
+                parsed.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void submit(BlockingQueue<CompletableFuture<ParsedChunk>> parsed, ExecutorService validators,
+                        RowParser parser, long firstLine, List<String> lines) throws InterruptedException {
+        parsed.put(CompletableFuture.supplyAsync(() -> parse(parser, firstLine, lines), validators));
+    }
+
+    private static ParsedChunk next(BlockingQueue<CompletableFuture<ParsedChunk>> parsed) throws IOException {
+        try {
+            return parsed.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fleet import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Validation worker: parses and validates a chunk; rows are only checked against each other by the writer
+    private ParsedChunk parse(RowParser parser, long firstLine, List<String> lines) {
+        List<ImportRow> rows = new ArrayList<>(lines.size());
+        List<Rejection> rejections = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            long lineNumber = firstLine + i;
+            if (lines.get(i).isBlank()) continue;
+
+            FleetImportRowDto row;
+            try {
+                row = parser.parse(lines.get(i));
+            } catch (IllegalArgumentException e) {
+                rejections.add(new Rejection(lineNumber, e.getMessage()));
+                continue;
+            }
+            Set<ConstraintViolation<FleetImportRowDto>> violations = validator.validate(row);
+            if (violations.isEmpty()) {
+                rows.add(new ImportRow(lineNumber, row));
+            } else {
+                rejections.add(new Rejection(lineNumber, violations.stream()
+                        .map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "))));
+            }
+        }
+        return new ParsedChunk(firstLine + lines.size() - 1, rows, rejections);
+    }
+
+    // Writer: stores one chunk in one transaction, then updates the in-memory indexes once it is committed
+    private void write(ParsedChunk chunk, Run run) {
+        List<Rejection> rejections = new ArrayList<>(chunk.rejections());
+        List<ImportRow> fresh = new ArrayList<>(chunk.rows().size());
+        Set<String> chunkVins = new HashSet<>();
+        long skipped = 0;
+        for (ImportRow row : chunk.rows()) {
+            String vin = row.dto().getVin();
+            if (vinIndex.find(vin).isPresent()) {
+                skipped++; // imported before, or already known to the application
+            } else if (!chunkVins.add(vin)) {
+                rejections.add(new Rejection(row.line(), "VIN " + vin + " appears more than once"));
+            } else {
+                fresh.add(row);
+            }
+        }
+
+        List<Long> carIds = transactionTemplate.execute(status -> {
+            List<Long> ids = insert(fresh);
+            run.checkpoint.advanceTo(null, chunk.lastLine());
+            run.checkpoint = jobCheckpointRepository.save(run.checkpoint);
+            if (!ids.isEmpty()) eventPublisher.publishEvent(new CarsWrittenEvent(ids));
+            return ids;
+        });
+
+        long policies = 0;
+        LocalDate firstCovered = null; // days covered by the chunk's policies, for the coverage snapshots
+        LocalDate lastCovered = null;
+        for (int i = 0; i < fresh.size(); i++) {
+            FleetImportRowDto row = fresh.get(i).dto();
+            Long carId = carIds.get(i);
+            vinIndex.put(row.getVin(), carId);
+            if (row.hasPolicy()) {
+                policyIntervalIndex.addPolicy(carId, row.getStartDate(), row.getEndDate());
+                if (firstCovered == null || row.getStartDate().isBefore(firstCovered)) firstCovered = row.getStartDate();
+                if (lastCovered == null || row.getEndDate().isAfter(lastCovered)) lastCovered = row.getEndDate();
+                policies++;
+            } else {
+                policyIntervalIndex.registerCar(carId);
+            }
+        }
+        coverageSnapshotService.invalidate(firstCovered, lastCovered);
+        if (!carIds.isEmpty()) {
+            // the inserts bypassed Hibernate, so cached query results (e.g. an empty policy list) could be stale
+            secondLevelCache.evictDefaultQueryRegion();
+        }
+
+        rejections.sort((a, b) -> Long.compare(a.line(), b.line()));
+        run.record(chunk.rows().size() + chunk.rejections().size(), fresh.size(), skipped, policies, rejections);
+        rowsImported.increment(fresh.size());
+        rowsSkipped.increment(skipped);
+        rowsRejected.increment(rejections.size());
+    }
+
+    private List<Long> insert(List<ImportRow> rows) {
+        if (rows.isEmpty()) return List.of();
+
+        Map<String, String> ownerNames = new LinkedHashMap<>();
+        for (ImportRow row : rows) {
+            ownerNames.putIfAbsent(row.dto().getOwnerEmail(), row.dto().getOwnerName());
+        }
+        Map<String, Long> ownerIds = fleetImportRepository.findOwnerIdsByEmail(ownerNames.keySet());
+        List<NewOwner> newOwners = ownerNames.entrySet().stream()
+                .filter(owner -> !ownerIds.containsKey(owner.getKey()))
+                .map(owner -> new NewOwner(owner.getValue(), owner.getKey()))
+                .toList();
+        List<Long> newOwnerIds = fleetImportRepository.insertOwners(newOwners);
+        for (int i = 0; i < newOwners.size(); i++) {
+            ownerIds.put(newOwners.get(i).email(), newOwnerIds.get(i));
+        }
+
+        List<Long> carIds = fleetImportRepository.insertCars(rows.stream()
+                .map(ImportRow::dto)
+                .map(row -> new NewCar(row.getVin(), row.getMake(), row.getModel(), row.getYearOfManufacture(),
+                        ownerIds.get(row.getOwnerEmail())))
+                .toList());
+
+        List<NewPolicy> policies = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            FleetImportRowDto row = rows.get(i).dto();
+            if (row.hasPolicy()) {
+                policies.add(new NewPolicy(carIds.get(i), row.getProvider(), row.getStartDate(), row.getEndDate()));
+            }
+        }
+        fleetImportRepository.insertPolicies(policies);
+        return carIds;
+    }
+
+    private FleetImportRowDto parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, FleetImportRowDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Not a valid row: " + e.getOriginalMessage());
+        }
+    }
+
+    private static RowParser csvParser(String header) {
+        if (header == null) {
+            throw new IllegalArgumentException("The file is empty, expected a header row");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("The header row has no " + required + " column");
+            }
+        }
+
+        return line -> {
+            List<String> fields = splitCsv(line);
+            CsvRow row = name -> {
+                Integer index = columns.get(name);
+                if (index == null || index >= fields.size()) return null;
+                String value = fields.get(index).trim();
+                return value.isEmpty() ? null : value;
+            };
+            return new FleetImportRowDto(row.get("vin"), row.get("make"), row.get("model"),
+                    parseField(row, "yearOfManufacture", Integer::valueOf), row.get("ownerName"), row.get("ownerEmail"),
+                    row.get("provider"), parseField(row, "startDate", LocalDate::parse), parseField(row, "endDate", LocalDate::parse));
+        };
+    }
+
+    private static <T> T parseField(CsvRow row, String column, Function<String, T> parser) {
+        String value = row.get(column);
+        if (value == null) return null;
+        try {
+            return parser.apply(value);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException(column + " has an invalid value: " + value);
+        }
+    }
+
+    // RFC 4180 fields on one line: quoted fields may hold commas and doubled quotes, not line breaks
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        FleetImportRowDto parse(String line);
+    }
+
+    @FunctionalInterface
+    private interface CsvRow {
+        String get(String column);
+    }
+
+    private record ImportRow(long line, FleetImportRowDto dto) {}
+
+    private record Rejection(long line, String reason) {}
+
+    private record ParsedChunk(long lastLine, List<ImportRow> rows, List<Rejection> rejections) {
+        static final ParsedChunk END = new ParsedChunk(-1, List.of(), List.of());
+    }
+
+    /**
+     * Totals and checkpoint of one import; only touched by the writer.
+     */
+    private static final class Run {
+
+        private final Path file;
+        private final long resumedAfterLine;
+        private final long started = System.nanoTime();
+        private final List<String> rejections = new ArrayList<>();
+        private JobCheckpoint checkpoint;
+        private long lastProgress = started;
+        private long rows;
+        private long imported;
+        private long skipped;
+        private long rejected;
+        private long policies;
+
+        Run(Path file, JobCheckpoint checkpoint) {
+            this.file = file;
+            this.checkpoint = checkpoint;
+            this.resumedAfterLine = checkpoint.getLastId() == null ? 0 : checkpoint.getLastId();
+        }
+
+        void record(long rows, long imported, long skipped, long policies, List<Rejection> rejections) {
+            this.rows += rows;
+            this.imported += imported;
+            this.skipped += skipped;
+            this.policies += policies;
+            this.rejected += rejections.size();
+            for (Rejection rejection : rejections) {
+                if (this.rejections.size() == MAX_REPORTED_REJECTIONS) break;
+                this.rejections.add("line " + rejection.line() + ": " + rejection.reason());
+                logger.warn("Fleet import of {} rejected line {}: {}", file, rejection.line(), rejection.reason());
+            }
+
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                logger.info("Fleet import of {}: {} rows so far, {} rows/s", file, this.rows,
+                        Math.round(this.rows * 1_000_000_000d / (now - started)));
+            }
+        }
+
+        Result result() {
+            return new Result(rows, imported, skipped, rejected, policies, resumedAfterLine,
+                    Duration.ofNanos(System.nanoTime() - started), List.copyOf(rejections));
+        }
+    }
+}
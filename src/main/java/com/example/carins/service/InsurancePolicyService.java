@@ -4,31 +4,75 @@ import com.example.carins.model.Car;
 import com.example.carins.model.InsurancePolicy;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.PolicyRequestRepository;
+import com.example.carins.repo.projection.PolicyRequest;
 import com.example.carins.web.dto.InsurancePolicyDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
 
+/*
+Policy creation is safe to retry and to run concurrently:
+- an optional idempotency key is stored with the policy in the same transaction, so a repeated request gets the
+  policy of the first one back instead of a second policy;
+- a new policy may not overlap one the car already has. The overlap check reads the car with
+  OPTIMISTIC_FORCE_INCREMENT, so when two transactions add policies to the same car the second commit fails on the
+  car's version and is retried, seeing the first policy this time. No table or row lock is held while checking,
+  and writers for different cars never touch the same row.
+ */
 @Service
 public class InsurancePolicyService {
 
+    // Attempts per request when a concurrent writer for the same car (or idempotency key) commits first
+    private static final int MAX_ATTEMPTS = 3;
+
     public final InsurancePolicyRepository insurancePolicyRepository;
     public final CarRepository carRepository;
-
-    public InsurancePolicyService(InsurancePolicyRepository insurancePolicyRepository, CarRepository carRepository){
+    private final PolicyRequestRepository policyRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter policiesCreated;
+    private final Counter requestsReplayed;
+    private final Counter conflictRetries;
+
+    public InsurancePolicyService(InsurancePolicyRepository insurancePolicyRepository, CarRepository carRepository,
+                                  PolicyRequestRepository policyRequestRepository, TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  MeterRegistry meterRegistry){
         this.insurancePolicyRepository = insurancePolicyRepository;
         this.carRepository = carRepository;
+        this.policyRequestRepository = policyRequestRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.policiesCreated = Counter.builder("carins.policies.created").register(meterRegistry);
+        this.requestsReplayed = Counter.builder("carins.policies.idempotent.replays").register(meterRegistry);
+        this.conflictRetries = Counter.builder("carins.policies.conflict.retries").register(meterRegistry);
     }
 
 
     public long createInsurance(Long carId, InsurancePolicyDto insurancePolicyDto) throws NoSuchElementException{
+        return createInsurance(carId, insurancePolicyDto, null);
+    }
+
+    /**
+     * Creates the policy, or returns the one already created under {@code idempotencyKey}. Throws
+     * {@link PolicyOverlapException} if the car already has a policy on any of the days, and
+     * {@link ConcurrencyFailureException} if concurrent writers for the car still win after a few attempts.
+     */
+    public long createInsurance(Long carId, InsurancePolicyDto insurancePolicyDto, String idempotencyKey) throws NoSuchElementException{
 
 
         String provider = insurancePolicyDto.getProvider();
@@ -45,20 +89,68 @@ public class InsurancePolicyService {
             throw new NoSuchElementException("endDate is not valid, please format the text like: \"2007-12-03\" ");
         }
 
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Creation creation = transactionTemplate.execute(
+                        status -> createOnce(carId, provider, startDate, endDate, idempotencyKey));
+                if (creation.replayed()) {
+                    requestsReplayed.increment();
+                } else {
+                    policiesCreated.increment();
+                }
+                return creation.policyId();
+            } catch (ConcurrencyFailureException | DuplicateKeyException e) {
+                // another transaction for this car or key committed first; the next attempt sees its result
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e instanceof ConcurrencyFailureException cfe ? cfe
+                            : new ConcurrencyFailureException("Idempotency key is in use by a concurrent request", e);
+                }
+                conflictRetries.increment();
+            }
+        }
+    }
+
+    private Creation createOnce(Long carId, String provider, LocalDate startDate, LocalDate endDate, String idempotencyKey) {
+        Optional<Creation> previous = previousCreation(carId, provider, startDate, endDate, idempotencyKey);
+        if (previous.isPresent()) return previous.get();
 
-        Optional<Car> car = carRepository.findById(carId);
+        Optional<Car> car = carRepository.findForPolicyChangeById(carId);
 
         if(car.isEmpty()){
             throw new NoSuchElementException("Could not find the card ID");
         }
 
+        if (insurancePolicyRepository.existsOverlapping(carId, startDate, endDate)) {
+            // the overlapping policy may come from a request with the same key committed since the lookup above
+            previous = previousCreation(carId, provider, startDate, endDate, idempotencyKey);
+            if (previous.isPresent()) return previous.get();
+            throw new PolicyOverlapException("Car " + carId + " already has a policy between " + startDate + " and " + endDate);
+        }
+
         InsurancePolicy insurancePolicy = new InsurancePolicy(car.get(), provider, startDate, endDate);
         insurancePolicy = this.insurancePolicyRepository.save(insurancePolicy);
 
-        return insurancePolicy.getId();
+        if (idempotencyKey != null) {
+            policyRequestRepository.insert(new PolicyRequest(idempotencyKey, carId, provider, startDate, endDate, insurancePolicy.getId()));
+        }
+
+        // Moves the car's ETag revision now, and the in-memory validity index and read routing once committed
+        eventPublisher.publishEvent(CarsWrittenEvent.of(carId));
+        eventPublisher.publishEvent(new PolicyCreatedEvent(insurancePolicy.getId(), carId, startDate, endDate));
+
+        return new Creation(insurancePolicy.getId(), false);
     }
 
-    public List<InsurancePolicy> findPoliciesByCarId(Long carId) {
-        return insurancePolicyRepository.findByCarId(carId);
+    private Optional<Creation> previousCreation(Long carId, String provider, LocalDate startDate, LocalDate endDate,
+                                                String idempotencyKey) {
+        if (idempotencyKey == null) return Optional.empty();
+        return policyRequestRepository.findByKey(idempotencyKey).map(previous -> {
+            if (!previous.sameRequestAs(carId, provider, startDate, endDate)) {
+                throw new IllegalArgumentException("Idempotency-Key " + idempotencyKey + " was already used for a different policy");
+            }
+            return new Creation(previous.policyId(), true);
+        });
     }
+
+    private record Creation(long policyId, boolean replayed) {}
 }
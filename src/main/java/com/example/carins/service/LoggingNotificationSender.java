@@ -0,0 +1,22 @@
+package com.example.carins.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Writes notices to the log instead of sending them.
+ */
+public class LoggingNotificationSender implements NotificationSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingNotificationSender.class);
+
+    @Override
+    public void send(List<OwnerExpiryNotice> batch) {
+        for (OwnerExpiryNotice notice : batch) {
+            logger.info("Notify owner {} <{}>: {} policies expiring soon {}", notice.ownerId(), notice.ownerEmail(),
+                    notice.policies().size(), notice.policies());
+        }
+    }
+}
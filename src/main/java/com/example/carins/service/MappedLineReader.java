@@ -0,0 +1,92 @@
+package com.example.carins.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a UTF-8 text file line by line through memory-mapped windows of a fixed size, so a file of any length is
+ * read with the same heap: only the current line is copied out of the page cache. A line cut by the end of a
+ * window is read again from the start of the next one. Lines end with {@code \n} or {@code \r\n}; a leading
+ * byte order mark is skipped. Not thread-safe.
+ */
+public final class MappedLineReader implements Closeable {
+
+    public static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowBytes;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int cursor;
+    private long lineNumber;
+    private byte[] line = new byte[256];
+
+    public MappedLineReader(Path file, int windowBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowBytes = windowBytes;
+        map(0);
+        if (window.limit() >= 3 && window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF) {
+            cursor = 3;
+        }
+    }
+
+    /**
+     * Returns the next line without its terminator, or null at the end of the file.
+     */
+    public String readLine() throws IOException {
+        if (windowStart + cursor >= fileSize) return null;
+
+        int end = indexOfNewline(cursor);
+        if (end < 0 && windowStart + window.limit() < fileSize) {
+            map(windowStart + cursor); // the line runs past this window, start the next one at it
+            end = indexOfNewline(0);
+            if (end < 0 && window.limit() == windowBytes) {
+                throw new IOException("Line " + (lineNumber + 1) + " is longer than " + windowBytes + " bytes");
+            }
+        }
+
+        int next = end < 0 ? window.limit() : end + 1;
+        if (end < 0) end = window.limit();
+        if (end > cursor && window.get(end - 1) == '\r') end--;
+
+        int length = end - cursor;
+        if (length > line.length) line = Arrays.copyOf(line, Math.max(length, line.length * 2));
+        window.get(cursor, line, 0, length);
+        cursor = next;
+        lineNumber++;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Number of the line last returned, starting at 1.
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    private int indexOfNewline(int from) {
+        for (int i = from, limit = window.limit(); i < limit; i++) {
+            if (window.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowBytes, fileSize - start));
+        cursor = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.carins.service;
+
+public class NotificationDeliveryException extends RuntimeException {
+
+    public NotificationDeliveryException(String message) {
+        super(message);
+    }
+
+    public NotificationDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.carins.service;
+
+import java.util.List;
+
+/**
+ * Outbound channel for owner notifications. Called with one batch at a time and must return only once the batch
+ * is handed over; throwing means none of the batch was delivered and it will be retried later.
+ */
+public interface NotificationSender {
+
+    void send(List<OwnerExpiryNotice> batch) throws NotificationDeliveryException;
+}
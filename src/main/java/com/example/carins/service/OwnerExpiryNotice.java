@@ -0,0 +1,12 @@
+package com.example.carins.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One message per owner listing all of their policies that expire soon.
+ */
+public record OwnerExpiryNotice(Long ownerId, String ownerName, String ownerEmail, List<ExpiringPolicy> policies) {
+
+    public record ExpiringPolicy(Long policyId, Long carId, String vin, LocalDate endDate) {}
+}
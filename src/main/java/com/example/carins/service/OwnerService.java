@@ -0,0 +1,83 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Owner;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.ClaimRollupRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.repo.projection.ActivePolicy;
+import com.example.carins.repo.projection.CarClaimTotals;
+import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.OwnerCarDto;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@Service
+public class OwnerService {
+
+    private final OwnerRepository ownerRepository;
+    private final CarRepository carRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final ClaimRollupRepository claimRollupRepository;
+
+    public OwnerService(OwnerRepository ownerRepository, CarRepository carRepository,
+                        InsurancePolicyRepository policyRepository, ClaimRollupRepository claimRollupRepository) {
+        this.ownerRepository = ownerRepository;
+        this.carRepository = carRepository;
+        this.policyRepository = policyRepository;
+        this.claimRollupRepository = claimRollupRepository;
+    }
+
+    /**
+     * One page of the owner's cars (id greater than {@code afterId}, at most {@code limit}) with the policy active
+     * on {@code date} and claim totals. Always four queries: owner, cars, policies of the page and claim totals
+     * of the page, however many cars the owner has.
+     */
+    @Transactional(readOnly = true)
+    public OwnerPortfolio findPortfolio(Long ownerId, LocalDate date, long afterId, int limit) throws NoSuchElementException {
+        Owner owner = ownerRepository.findById(ownerId)
+                .orElseThrow(() -> new NoSuchElementException("Owner with ID " + ownerId + " not found"));
+
+        // one extra row tells whether another page exists
+        List<CarDto> cars = carRepository.findOwnerCarDtos(ownerId, afterId, Limit.of(limit + 1));
+        Long nextAfter = null;
+        if (cars.size() > limit) {
+            cars = cars.subList(0, limit);
+            nextAfter = cars.get(limit - 1).id();
+        }
+        if (cars.isEmpty()) {
+            return new OwnerPortfolio(owner.getId(), owner.getName(), owner.getEmail(), List.of(), null);
+        }
+
+        List<Long> carIds = cars.stream().map(CarDto::id).toList();
+        Map<Long, ActivePolicy> activePolicies = new HashMap<>();
+        for (ActivePolicy policy : policyRepository.findActiveOnDate(carIds, date)) {
+            activePolicies.putIfAbsent(policy.carId(), policy); // first row per car is the latest start
+        }
+        Map<Long, CarClaimTotals> claimTotals = new HashMap<>();
+        for (CarClaimTotals totals : claimRollupRepository.totalsForCars(carIds)) {
+            claimTotals.put(totals.carId(), totals);
+        }
+
+        List<OwnerCarDto> portfolio = new ArrayList<>(cars.size());
+        for (CarDto car : cars) {
+            CarClaimTotals totals = claimTotals.get(car.id());
+            portfolio.add(new OwnerCarDto(car.id(), car.vin(), car.make(), car.model(), car.year(),
+                    activePolicies.get(car.id()),
+                    totals != null ? totals.claimCount() : 0,
+                    totals != null ? totals.totalAmount() : BigDecimal.ZERO));
+        }
+        return new OwnerPortfolio(owner.getId(), owner.getName(), owner.getEmail(), portfolio, nextAfter);
+    }
+
+    public record OwnerPortfolio(Long ownerId, String name, String email, List<OwnerCarDto> cars, Long nextAfter) {}
+}
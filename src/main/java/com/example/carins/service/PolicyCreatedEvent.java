@@ -0,0 +1,8 @@
+package com.example.carins.service;
+
+import java.time.LocalDate;
+
+/**
+ * Published by {@link InsurancePolicyService} once a policy is saved; listeners run after commit.
+ */
+public record PolicyCreatedEvent(Long policyId, Long carId, LocalDate startDate, LocalDate endDate) {}
@@ -2,63 +2,184 @@ package com.example.carins.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.example.carins.model.InsurancePolicy;
+import com.example.carins.model.JobCheckpoint;
 import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.JobCheckpointRepository;
+import com.example.carins.repo.SchedulerLeaseRepository;
+import com.example.carins.repo.projection.ExpiredPolicy;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /*
 For D) Add a cron that logs within 1 hour after a policy expires
+Incremental: only policies that expired after the persisted (endDate, id) checkpoint are read, in fixed-size chunks,
+so a run costs in proportion to the newly expired policies and survives restarts without logging twice.
+Cluster-safe: the work is split into shards by car_id modulo the shard count, each with its own checkpoint and
+database lease. Every node walks the shards from a random start and processes those whose lease it gets, so
+nodes share a run instead of repeating it. Modulo rather than id ranges keeps shards even as new cars get ever
+higher ids, and a car's policies always stay in the same shard.
+A shard's lease is renewed before each chunk and the run stops as soon as it is lost. The checkpoint is versioned,
+so a node that stalled past its lease cannot move the shard back behind the new holder's progress.
  */
 @Service
 public class PolicyExpiryScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(PolicyExpiryScheduler.class);
+
+    private static final String CHECKPOINT_NAME = "policy-expiry";
+    private static final String LEASE_NAME = "policy-expiry";
+    // Starting point before the first run, earlier than any policy end date
+    private static final LocalDate NO_CHECKPOINT_DATE = LocalDate.of(1, 1, 1);
+
     private final InsurancePolicyRepository insurancePolicyRepository;
-    private final HashSet<Long> loggedPolicyIds = new HashSet<>();
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final SchedulerLeaseRepository leaseRepository;
+    private final int chunkSize;
+    private final int shards;
+    private final Duration leaseDuration;
+    private final String nodeId;
+
+    private final Timer jobTimer;
+    private final Counter policiesLogged;
+    // expired policies not processed yet, measured at the start of a run and counted down while it proceeds
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lastSuccessEpochSeconds = new AtomicLong();
 
-    public PolicyExpiryScheduler(InsurancePolicyRepository insurancePolicyRepository) {
+    public PolicyExpiryScheduler(InsurancePolicyRepository insurancePolicyRepository, JobCheckpointRepository jobCheckpointRepository,
+                                 SchedulerLeaseRepository leaseRepository,
+                                 @Value("${carins.expiry.chunk-size:500}") int chunkSize,
+                                 @Value("${carins.expiry.shards:16}") int shards,
+                                 @Value("${carins.expiry.lease-duration:10m}") Duration leaseDuration,
+                                 MeterRegistry meterRegistry) {
         this.insurancePolicyRepository = insurancePolicyRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.leaseRepository = leaseRepository;
+        this.chunkSize = chunkSize;
+        this.shards = shards;
+        this.leaseDuration = leaseDuration;
+        this.nodeId = SchedulerLeaseRepository.newOwnerId();
+        this.jobTimer = Timer.builder("carins.expiry.job").description("Duration of expiry scheduler runs").register(meterRegistry);
+        this.policiesLogged = Counter.builder("carins.expiry.policies.logged").register(meterRegistry);
+        Gauge.builder("carins.expiry.backlog", backlog, AtomicLong::get)
+                .description("Expired policies waiting to be processed in the shards this node holds").register(meterRegistry);
+        Gauge.builder("carins.expiry.last.success", lastSuccessEpochSeconds, AtomicLong::get)
+                .description("End of the last successful run, epoch seconds").baseUnit("seconds").register(meterRegistry);
     }
 
     // Scheduled every day after midnight
     // Was fixedRate but we dont need it every hour as all insurances expire at 00:00
     @Scheduled(cron="0 5 0 * * *", zone="GMT+3")
     public void checkExpiredPolicies() {
-        LocalDate today = LocalDate.now();
+        processExpiredPolicies();
+    }
 
-        // Find policies that expired today or before (all expired policies)
-        List<InsurancePolicy> expiredPolicies = insurancePolicyRepository.findByEndDateBefore(today);
+    /**
+     * Logs every policy that expired since the last checkpoint in each shard this node can lease, moving the
+     * shard's checkpoint after each chunk. Returns the number of policies logged by this node.
+     */
+    public int processExpiredPolicies() {
+        return jobTimer.record(this::runShards);
+    }
 
+    private int runShards() {
+        LocalDate today = LocalDate.now();
+        backlog.set(0);
+        int processed = 0;
+        int leased = 0;
+        int first = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (first + i) % shards;
+            String lease = shardName(LEASE_NAME, shard);
+            if (!leaseRepository.tryAcquire(lease, nodeId, leaseDuration)) continue; // another node has it
+            leased++;
+            try {
+                processed += runShard(today, shard, lease);
+            } finally {
+                leaseRepository.release(lease, nodeId);
+            }
+        }
 
-        if (expiredPolicies.isEmpty()) {
-            logger.debug("No expired policies found");
-            return;
+        if (processed == 0) {
+            logger.debug("No newly expired policies found in {} of {} shards", leased, shards);
+        } else {
+            logger.info("Logged {} newly expired policies in {} of {} shards", processed, leased, shards);
         }
-        
-        logger.info("Found {} expired policies to check", expiredPolicies.size());
-        
-        for (InsurancePolicy policy : expiredPolicies) {
-            // Only log if we haven't logged this policy before
-            if (!loggedPolicyIds.contains(policy.getId())) {
-                logger.info("Policy {} for car {} expired on {}", policy.getId(), policy.getCar().getId(), policy.getEndDate());
-                loggedPolicyIds.add(policy.getId());
+        lastSuccessEpochSeconds.set(System.currentTimeMillis() / 1000);
+        return processed;
+    }
+
+    private int runShard(LocalDate today, int shard, String lease) {
+        String checkpointName = shardName(CHECKPOINT_NAME, shard);
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(checkpointName)
+                .orElseGet(() -> startingCheckpoint(checkpointName));
+        backlog.addAndGet(insurancePolicyRepository.countExpiredAfter(today, checkpoint.getLastDate(), checkpoint.getLastId(), shards, shard));
+
+        int processed = 0;
+        List<ExpiredPolicy> chunk;
+        do {
+            if (processed > 0 && !leaseRepository.renew(lease, nodeId, leaseDuration)) {
+                logger.warn("Lost the {} lease after {} expired policies, stopping this shard", lease, processed);
+                break;
             }
-        }
+            chunk = insurancePolicyRepository.findExpiredAfter(today, checkpoint.getLastDate(), checkpoint.getLastId(),
+                    shards, shard, Limit.of(chunkSize));
+            if (chunk.isEmpty()) break;
+
+            for (ExpiredPolicy policy : chunk) {
+                logger.info("Policy {} for car {} expired on {}", policy.policyId(), policy.carId(), policy.endDate());
+            }
+
+            ExpiredPolicy last = chunk.get(chunk.size() - 1);
+            checkpoint.advanceTo(last.endDate(), last.policyId());
+            try {
+                checkpoint = jobCheckpointRepository.save(checkpoint);
+            } catch (OptimisticLockingFailureException e) {
+                // the lease expired while the chunk ran and another node has moved the checkpoint since
+                logger.warn("Checkpoint {} was moved by another node, stopping this shard", checkpointName);
+                break;
+            }
+            processed += chunk.size();
+            policiesLogged.increment(chunk.size());
+            backlog.addAndGet(-chunk.size());
+        } while (chunk.size() == chunkSize);
+        return processed;
+    }
+
+    // A new shard (first run, or the shard count changed) starts at the lowest checkpoint left by an earlier
+    // shard layout: some policies may be logged again, none is skipped
+    private JobCheckpoint startingCheckpoint(String name) {
+        String currentLayout = "-of-" + shards;
+        return jobCheckpointRepository.findByNameStartingWith(CHECKPOINT_NAME).stream()
+                .filter(checkpoint -> !checkpoint.getName().endsWith(currentLayout))
+                .min(Comparator.comparing(JobCheckpoint::getLastDate).thenComparing(JobCheckpoint::getLastId))
+                .map(lowest -> new JobCheckpoint(name, lowest.getLastDate(), lowest.getLastId()))
+                .orElseGet(() -> new JobCheckpoint(name, NO_CHECKPOINT_DATE, 0L));
     }
 
-    public Set<Long> getLoggedPolicyIds() {
-        return new HashSet<>(loggedPolicyIds);
+    private String shardName(String prefix, int shard) {
+        return prefix + "/" + shard + "-of-" + shards;
     }
 
-    public void clearLoggedPolicyIds() {
-        loggedPolicyIds.clear();
+    /**
+     * Forgets the checkpoints of all shards so the next run starts again from the oldest expired policy.
+     */
+    public void resetCheckpoint() {
+        jobCheckpointRepository.deleteAll(jobCheckpointRepository.findByNameStartingWith(CHECKPOINT_NAME));
     }
 }
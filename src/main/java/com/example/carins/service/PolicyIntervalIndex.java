@@ -0,0 +1,225 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.PolicyPeriod;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory per-car index of policy coverage periods, used to answer validity checks without the database.
+ * Warmed once the application is ready and kept in step with {@link InsurancePolicyService#createInsurance}.
+ * Writes that arrive while the index is being rebuilt are replayed onto the rebuilt data, and cars and policies
+ * written by other nodes are picked up by a periodic delta refresh on their ids. The refresh reads again the last
+ * {@code refresh-lookback} ids below its watermark, since a transaction holding a lower id may commit after a
+ * higher one; applying a known period again changes nothing.
+ */
+@Component
+public class PolicyIntervalIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PolicyIntervalIndex.class);
+
+    private final CarRepository carRepository;
+    private final InsurancePolicyRepository insurancePolicyRepository;
+    private final long refreshLookback;
+    private volatile Map<Long, CoverageIntervals> coverageByCar = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // guards the swap of coverageByCar against concurrent writes; pendingWrites is non-null during a rebuild
+    private final Object writeLock = new Object();
+    private List<PendingWrite> pendingWrites;
+
+    // one rebuild or refresh at a time; they hold it across queries, so not a monitor (virtual threads)
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    // highest car and policy ids loaded so far, guarded by reloadLock
+    private long carWatermark;
+    private long policyWatermark;
+
+    public PolicyIntervalIndex(CarRepository carRepository, InsurancePolicyRepository insurancePolicyRepository,
+                               @Value("${carins.validity.index.refresh-lookback:1000}") long refreshLookback,
+                               MeterRegistry meterRegistry) {
+        this.carRepository = carRepository;
+        this.insurancePolicyRepository = insurancePolicyRepository;
+        this.refreshLookback = refreshLookback;
+        Gauge.builder("carins.validity.index.cars", this, index -> index.coverageByCar.size())
+                .description("Cars held by the in-memory validity index").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * Reloads the whole index from the database. Lookups keep using the previous data until this returns; writes
+     * made meanwhile go to both.
+     */
+    public void rebuild() {
+        reloadLock.lock();
+        try {
+            load();
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                pendingWrites = null; // the writes went to the current data as well
+            }
+            throw e;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        synchronized (writeLock) {
+            pendingWrites = new ArrayList<>();
+        }
+        // read before the rows, so anything committed after the load is above the watermarks
+        long carMaxId = carRepository.findMaxId();
+        long policyMaxId = insurancePolicyRepository.findMaxId();
+        List<Long> carIds = carRepository.findAllIds();
+        List<PolicyPeriod> periods = insurancePolicyRepository.findAllPeriodsOrderByCar();
+
+        Map<Long, CoverageIntervals> loaded = new ConcurrentHashMap<>(carIds.size() * 2);
+        for (Long carId : carIds) {
+            loaded.put(carId, CoverageIntervals.EMPTY);
+        }
+
+        long[] starts = new long[8];
+        long[] ends = new long[8];
+        int count = 0;
+        Long currentCar = null;
+        for (PolicyPeriod period : periods) {
+            if (period.startDate() == null) continue; // never active, see existsActiveOnDate
+            if (!period.carId().equals(currentCar)) {
+                if (currentCar != null) loaded.put(currentCar, CoverageIntervals.of(starts, ends, count));
+                currentCar = period.carId();
+                count = 0;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = CoverageIntervals.startDay(period.startDate());
+            ends[count] = CoverageIntervals.endDay(period.endDate());
+            count++;
+        }
+        if (currentCar != null) loaded.put(currentCar, CoverageIntervals.of(starts, ends, count));
+
+        synchronized (writeLock) {
+            for (PendingWrite write : pendingWrites) {
+                apply(loaded, write.carId(), write.start(), write.end());
+            }
+            coverageByCar = loaded;
+            pendingWrites = null;
+        }
+        carWatermark = carMaxId;
+        policyWatermark = policyMaxId;
+        ready = true;
+        logger.info("Policy interval index loaded {} cars and {} policies in {} ms",
+                carIds.size(), periods.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Loads the cars and policies stored since the last rebuild or refresh, including those of other nodes.
+     */
+    @Scheduled(fixedDelayString = "${carins.validity.index.refresh-interval:30s}",
+            initialDelayString = "${carins.validity.index.refresh-interval:30s}")
+    public void refresh() {
+        if (!ready) return;
+        reloadLock.lock();
+        try {
+            loadDelta();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void loadDelta() {
+        long carMaxId = carRepository.findMaxId();
+        long policyMaxId = insurancePolicyRepository.findMaxId();
+
+        for (Long carId : carRepository.findIdsBetween(Math.max(0, carWatermark - refreshLookback), carMaxId)) {
+            registerCar(carId);
+        }
+        List<PolicyPeriod> periods = insurancePolicyRepository.findPeriodsWithIdBetween(
+                Math.max(0, policyWatermark - refreshLookback), policyMaxId);
+        for (PolicyPeriod period : periods) {
+            addPolicy(period.carId(), period.startDate(), period.endDate());
+        }
+        carWatermark = Math.max(carWatermark, carMaxId);
+        policyWatermark = Math.max(policyWatermark, policyMaxId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyCreated(PolicyCreatedEvent event) {
+        addPolicy(event.carId(), event.startDate(), event.endDate());
+    }
+
+    public void registerCar(Long carId) {
+        write(carId, 0, -1);
+    }
+
+    public void addPolicy(Long carId, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null) {
+            registerCar(carId); // never active, see existsActiveOnDate
+            return;
+        }
+        write(carId, CoverageIntervals.startDay(startDate), CoverageIntervals.endDay(endDate));
+    }
+
+    private void write(Long carId, long start, long end) {
+        synchronized (writeLock) {
+            apply(coverageByCar, carId, start, end);
+            if (pendingWrites != null) pendingWrites.add(new PendingWrite(carId, start, end));
+        }
+    }
+
+    // an empty period (end before start) only registers the car
+    private static void apply(Map<Long, CoverageIntervals> coverage, Long carId, long start, long end) {
+        if (end < start) {
+            coverage.putIfAbsent(carId, CoverageIntervals.EMPTY);
+        } else {
+            coverage.compute(carId, (id, current) -> (current == null ? CoverageIntervals.EMPTY : current).with(start, end));
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int carCount() {
+        return coverageByCar.size();
+    }
+
+    public boolean containsCar(Long carId) {
+        return coverageByCar.containsKey(carId);
+    }
+
+    public boolean isCovered(Long carId, LocalDate date) {
+        CoverageIntervals coverage = coverageByCar.get(carId);
+        return coverage != null && coverage.covers(date);
+    }
+
+    public CoverageIntervals coverageOf(Long carId) {
+        return coverageByCar.getOrDefault(carId, CoverageIntervals.EMPTY);
+    }
+
+    private record PendingWrite(Long carId, long start, long end) {}
+}
@@ -0,0 +1,8 @@
+package com.example.carins.service;
+
+public class PolicyOverlapException extends RuntimeException {
+
+    public PolicyOverlapException(String message) {
+        super(message);
+    }
+}
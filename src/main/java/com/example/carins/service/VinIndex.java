@@ -0,0 +1,246 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.projection.CarVin;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * VIN to car id index held in two primitive arrays instead of a map of strings. VINs are stored as ASCII bytes in
+ * one arena, each entry being {@code [length][vin bytes][car id, 8 bytes]}, and an open-addressing table with linear
+ * probing holds the arena offsets. A 17-character VIN costs about 31 bytes and no object per entry, so tens of
+ * millions of cars take a few hundred MB that the GC never has to trace. Lookups do not lock (optimistic
+ * {@link StampedLock} reads) and do not allocate; writes are serialized. Warmed once the application is ready.
+ */
+@Component
+public class VinIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(VinIndex.class);
+
+    // car.vin is varchar(32), so the length fits the entry's single length byte
+    private static final int MAX_VIN_LENGTH = 32;
+    private static final int EMPTY = -1;
+    private static final int INITIAL_SLOTS = 1 << 10;
+    private static final int ENTRY_OVERHEAD = 1 + Long.BYTES;
+
+    private final CarRepository carRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StampedLock lock = new StampedLock();
+    private Store store = new Store(INITIAL_SLOTS, INITIAL_SLOTS * 16);
+    private volatile boolean ready;
+
+    public VinIndex(CarRepository carRepository, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.carRepository = carRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        Gauge.builder("carins.vin.index.cars", this, VinIndex::size)
+                .description("Cars held by the in-memory VIN index").register(meterRegistry);
+        Gauge.builder("carins.vin.index.memory", this, VinIndex::memoryBytes).baseUnit("bytes")
+                .description("Heap taken by the VIN index arrays").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * Reloads every VIN from the database. Lookups keep using the previous data until this returns.
+     */
+    public void rebuild() {
+        long started = System.nanoTime();
+        Store loaded = new Store(INITIAL_SLOTS, INITIAL_SLOTS * 16);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<CarVin> vins = carRepository.streamVins()) {
+                vins.forEach(car -> loaded.put(car.vin(), car.carId()));
+            }
+        });
+
+        long stamp = lock.writeLock();
+        try {
+            store = loaded;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        ready = true;
+        logger.info("VIN index loaded {} cars ({} KB) in {} ms",
+                loaded.size, loaded.memoryBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Adds the car or moves the VIN to it. VINs that are not ASCII or longer than the column are ignored.
+     */
+    public void put(String vin, long carId) {
+        long stamp = lock.writeLock();
+        try {
+            store.put(vin, carId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public OptionalLong find(String vin) {
+        if (vin == null || vin.isEmpty() || vin.length() > MAX_VIN_LENGTH) return OptionalLong.empty();
+        int hash = hash(vin);
+        if (hash == 0) return OptionalLong.empty(); // not ASCII, cannot be stored
+
+        long stamp = lock.tryOptimisticRead();
+        long carId = store.find(vin, hash);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                carId = store.find(vin, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return carId == EMPTY ? OptionalLong.empty() : OptionalLong.of(carId);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return store.size;
+    }
+
+    public long memoryBytes() {
+        return store.memoryBytes();
+    }
+
+    // FNV-1a over the characters, 0 for anything outside ASCII; never 0 otherwise
+    private static int hash(CharSequence vin) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < vin.length(); i++) {
+            char c = vin.charAt(i);
+            if (c > 127) return 0;
+            hash = (hash ^ c) * 0x01000193;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * The arrays themselves. Not thread-safe: writes hold the write lock, and reads racing a write may see a torn
+     * state, so every offset is bounds-checked and the caller discards the result unless its stamp is still valid.
+     */
+    private static final class Store {
+
+        private int[] slots;
+        private byte[] arena;
+        private int arenaSize;
+        private int size;
+
+        Store(int slotCount, int arenaBytes) {
+            slots = new int[slotCount];
+            Arrays.fill(slots, EMPTY);
+            arena = new byte[arenaBytes];
+        }
+
+        long find(String vin, int hash) {
+            int[] slots = this.slots;
+            byte[] arena = this.arena;
+            int mask = slots.length - 1;
+            for (int probe = 0, i = hash & mask; probe < slots.length; probe++, i = (i + 1) & mask) {
+                int offset = slots[i];
+                if (offset == EMPTY) return EMPTY;
+                if (matches(arena, offset, vin)) return readCarId(arena, offset + 1 + vin.length());
+            }
+            return EMPTY;
+        }
+
+        void put(String vin, long carId) {
+            if (vin == null || vin.isEmpty() || vin.length() > MAX_VIN_LENGTH) return;
+            int hash = hash(vin);
+            if (hash == 0) return;
+
+            if ((size + 1) * 4L > slots.length * 3L) {
+                resize(slots.length * 2);
+            }
+            int mask = slots.length - 1;
+            int i = hash & mask;
+            for (; slots[i] != EMPTY; i = (i + 1) & mask) {
+                if (matches(arena, slots[i], vin)) {
+                    writeCarId(arena, slots[i] + 1 + vin.length(), carId);
+                    return;
+                }
+            }
+
+            int entrySize = vin.length() + ENTRY_OVERHEAD;
+            if (arenaSize + entrySize > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arenaSize + entrySize, arena.length + (arena.length >> 1)));
+            }
+            int offset = arenaSize;
+            arena[offset] = (byte) vin.length();
+            for (int k = 0; k < vin.length(); k++) {
+                arena[offset + 1 + k] = (byte) vin.charAt(k);
+            }
+            writeCarId(arena, offset + 1 + vin.length(), carId);
+            arenaSize += entrySize;
+            slots[i] = offset;
+            size++;
+        }
+
+        private void resize(int slotCount) {
+            int[] resized = new int[slotCount];
+            Arrays.fill(resized, EMPTY);
+            int mask = slotCount - 1;
+            for (int offset : slots) {
+                if (offset == EMPTY) continue;
+                int i = hashAt(arena, offset) & mask;
+                while (resized[i] != EMPTY) i = (i + 1) & mask;
+                resized[i] = offset;
+            }
+            slots = resized;
+        }
+
+        long memoryBytes() {
+            return (long) slots.length * Integer.BYTES + arena.length;
+        }
+
+        private static boolean matches(byte[] arena, int offset, String vin) {
+            int length = vin.length();
+            if (offset < 0 || offset + 1 + length + Long.BYTES > arena.length || arena[offset] != length) return false;
+            for (int k = 0; k < length; k++) {
+                if (arena[offset + 1 + k] != (byte) vin.charAt(k)) return false;
+            }
+            return true;
+        }
+
+        private static int hashAt(byte[] arena, int offset) {
+            int length = arena[offset];
+            int hash = 0x811c9dc5;
+            for (int k = 0; k < length; k++) {
+                hash = (hash ^ arena[offset + 1 + k]) * 0x01000193;
+            }
+            return hash == 0 ? 1 : hash;
+        }
+
+        private static long readCarId(byte[] arena, int at) {
+            long carId = 0;
+            for (int k = 0; k < Long.BYTES; k++) {
+                carId = (carId << 8) | (arena[at + k] & 0xFF);
+            }
+            return carId;
+        }
+
+        private static void writeCarId(byte[] arena, int at, long carId) {
+            for (int k = Long.BYTES - 1; k >= 0; k--) {
+                arena[at + k] = (byte) carId;
+                carId >>>= 8;
+            }
+        }
+    }
+}
@@ -1,61 +1,143 @@
 package com.example.carins.web;
 
-import com.example.carins.model.Car;
-import com.example.carins.model.Claim;
-import com.example.carins.model.InsurancePolicy;
+import com.example.carins.repo.CarHistoryRepository;
+import com.example.carins.repo.ClaimSubmissionRepository;
+import com.example.carins.repo.projection.HistoryCursor;
+import com.example.carins.service.CarRevisionRegistry;
 import com.example.carins.service.CarService;
 import com.example.carins.service.ClaimService;
+import com.example.carins.service.ClaimSubmissionService;
+import com.example.carins.service.CoverageIntervals;
 import com.example.carins.service.InsurancePolicyService;
+import com.example.carins.service.PolicyOverlapException;
 import com.example.carins.web.dto.CarDto;
 import com.example.carins.web.dto.ClaimDto;
 import com.example.carins.web.dto.HistoryEventDto;
 import com.example.carins.web.dto.InsurancePolicyDto;
+import com.example.carins.web.dto.InsuranceValidityBatchDto;
+import com.example.carins.web.dto.ValidityCheckDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.jpa.domain.AbstractAuditable_;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
 
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 
 @RestController
 @RequestMapping("/api")
 public class CarController {
 
+    private static final int MAX_VALIDITY_CHECKS = 10_000;
+    private static final int MAX_HISTORY_PAGE = 1_000;
+    private static final int MAX_CARS_PAGE = 1_000;
+    private static final String NEXT_AFTER_HEADER = "X-Next-After";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+
+    // cached copies may be stored but are revalidated with If-None-Match on every use
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+
     private final CarService service;
     private final InsurancePolicyService insurancePolicyService;
     private final ClaimService claimService;
-
-    public CarController(CarService service, InsurancePolicyService insurancePolicyService, ClaimService claimService) {
+    private final ClaimSubmissionService claimSubmissionService;
+    private final CarRevisionRegistry carRevisionRegistry;
+    private final ObjectMapper objectMapper;
+    private final CacheControl pastValidityCacheControl;
+
+    public CarController(CarService service, InsurancePolicyService insurancePolicyService, ClaimService claimService,
+                         ClaimSubmissionService claimSubmissionService, CarRevisionRegistry carRevisionRegistry, ObjectMapper objectMapper,
+                         @Value("${carins.http.past-validity-max-age:1d}") Duration pastValidityMaxAge) {
         this.service = service;
         this.insurancePolicyService = insurancePolicyService;
         this.claimService = claimService;
+        this.claimSubmissionService = claimSubmissionService;
+        this.carRevisionRegistry = carRevisionRegistry;
+        this.objectMapper = objectMapper;
+        this.pastValidityCacheControl = CacheControl.maxAge(pastValidityMaxAge);
     }
 
+    /*
+    Cars ordered by id, optionally filtered by make/model/year/owner. With limit, the X-Next-After header carries
+    the value to pass as after for the next page; stream=true writes every match as NDJSON instead.
+    Pages carry an ETag of the car list revision; a matching If-None-Match gets 304 without reading the page.
+     */
     @GetMapping("/cars")
-    public List<CarDto> getCars() {
-        return service.listCars().stream().map(this::toDto).toList();
+    public ResponseEntity<?> getCars(@RequestParam(defaultValue = "0") long after,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String make,
+                                     @RequestParam(required = false) String model,
+                                     @RequestParam(required = false) Integer year,
+                                     @RequestParam(required = false) Long ownerId,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (limit != null && (limit < 1 || limit > MAX_CARS_PAGE)) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_CARS_PAGE);
+        }
+
+        // taken before the query, so a concurrent write can only make the tag older than the body, never newer
+        String etag = carRevisionRegistry.carListTag();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return ConditionalResponses.notModified(etag, REVALIDATE);
+        }
+
+        // one extra row tells whether another page exists
+        List<CarDto> cars = service.listCars(after, limit != null ? limit + 1 : null, make, model, year, ownerId);
+        if (limit != null && cars.size() > limit) {
+            cars = cars.subList(0, limit);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE)
+                    .header(NEXT_AFTER_HEADER, String.valueOf(cars.get(limit - 1).id())).body(cars);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(cars);
+    }
+
+    /*
+    Streamed variant of the car listing (stream=true): every car after after matching the filters, as NDJSON written
+    while the query advances.
+     */
+    @GetMapping(value = "/cars", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamCars(@RequestParam(defaultValue = "0") long after,
+                                                            @RequestParam(required = false) String make,
+                                                            @RequestParam(required = false) String model,
+                                                            @RequestParam(required = false) Integer year,
+                                                            @RequestParam(required = false) Long ownerId) {
+        return NdjsonResponses.stream(objectMapper, CarDto.class,
+                sink -> service.streamCars(after, make, model, year, ownerId, sink));
     }
 
 
     /*
     For A) - Acceptance criteria - Creating a policy without endDate fails with 4xx and a helpful message.
+    Repeating a request with the same Idempotency-Key returns the policy the first one created; a policy
+    overlapping one the car already has is rejected with 409.
      */
     @PostMapping("/cars/{carId}/create-insurance")
-    public ResponseEntity<?> createInsurance(@PathVariable Long carId, @RequestBody @Valid InsurancePolicyDto insurancePolicyDto, BindingResult bindingResult) {
+    public ResponseEntity<?> createInsurance(@PathVariable Long carId,
+                                             @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                             @RequestBody @Valid InsurancePolicyDto insurancePolicyDto, BindingResult bindingResult) {
 
         if (bindingResult.hasErrors()) {
             StringBuilder errorMessage = new StringBuilder();
@@ -65,11 +147,14 @@ public class CarController {
 
             return ResponseEntity.badRequest().body("Validation failed: " + errorMessage);
         }
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            return ResponseEntity.badRequest().body(IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
 
         URI uri;
         try {
 
-            long id = insurancePolicyService.createInsurance(carId, insurancePolicyDto);
+            long id = insurancePolicyService.createInsurance(carId, insurancePolicyDto, idempotencyKey);
 
             uri = new URI("/api/"+ carId + "/insurance/" + id);
         }catch (URISyntaxException e) {
@@ -79,6 +164,10 @@ public class CarController {
         }catch (IllegalArgumentException e){
             return ResponseEntity.badRequest().body("Something went wrong: " + e);
 
+        }catch (PolicyOverlapException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        }catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(409).body("The car was changed by concurrent requests, please try again");
         }
 
         return ResponseEntity.created(uri).body("Insurance created successfully!");
@@ -86,27 +175,21 @@ public class CarController {
 
     /*
     For B) 1. - Register an insurance claim for a car
+    The car is looked up once, by the claim service, which answers 404 when it does not exist.
      */
     @PostMapping("/cars/{carId}/claims")
     public ResponseEntity<String> registerClaim(@PathVariable @Positive Long carId, @RequestBody @Valid ClaimDto claimDto, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
-            StringBuilder errorMessage = new StringBuilder();
-            for (ObjectError error : bindingResult.getAllErrors()) {
-                errorMessage.append(error.getDefaultMessage()).append("; ");
-            }
-            return ResponseEntity.badRequest().body("Validation failed: " + errorMessage);
+            return ResponseEntity.badRequest().body(validationErrors(bindingResult));
         }
 
         URI uri;
         try {
-            Optional<Car> carOptional = service.findCarById(claimDto.getCarId());
-            if (carOptional.isEmpty()) {
-                return ResponseEntity.status(404).body("Car with ID " + claimDto.getCarId() + " not found");
-            }
-
             long id = claimService.createClaim(carId, claimDto);
 
             uri = new URI("/api/cars/" + carId + "/claims/" + id);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(404).body("Car with ID " + carId + " not found");
         } catch (URISyntaxException e) {
             return ResponseEntity.internalServerError().body("Something went wrong, we could not generate the URI: " + e);
         }
@@ -115,101 +198,214 @@ public class CarController {
         return ResponseEntity.created(uri).body("Successfully created!");
     }
 
+    /*
+    Asynchronous variant (async=true) for submission spikes: the validated claim is appended to the submission
+    queue and 202 Accepted returns its tracking id without waiting for the claim tables. Queued claims are stored
+    in batches in the background; poll the Location (/api/claims/submissions/{trackingId}) for the outcome.
+     */
+    @PostMapping(value = "/cars/{carId}/claims", params = "async=true")
+    public ResponseEntity<?> submitClaim(@PathVariable @Positive Long carId, @RequestBody @Valid ClaimDto claimDto, BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(validationErrors(bindingResult));
+        }
+        try {
+            String trackingId = claimSubmissionService.submit(carId, claimDto);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/claims/submissions/" + trackingId))
+                    .body(new ClaimSubmissionResponse(trackingId, ClaimSubmissionRepository.PENDING));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(404).body(e.getMessage());
+        }
+    }
+
     /*
     For B) 2. - Get the history of a car (regardless of owner)
+    Events come from one SQL merge ordered by date. Pass limit (and after=<nextCursor>) to page through long
+    histories, or stream=true to receive the events as NDJSON while they are read.
+    Pages carry an ETag of the car's revision, which moves when its policies or claims change.
      */
     @GetMapping("/cars/{carId}/history")
-    public ResponseEntity<?> getCarHistory(@PathVariable Long carId) {
+    public ResponseEntity<?> getCarHistory(@PathVariable Long carId,
+                                           @RequestParam(required = false) String after,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             // Check if car exists
-            Optional<Car> car = service.findCarById(carId);
-            if (car.isEmpty()) {
+            if (!service.carExists(carId)) {
                 return ResponseEntity.notFound().build();
             }
 
-            List<InsurancePolicy> policies = insurancePolicyService.findPoliciesByCarId(carId);
-            List<Claim> claims = claimService.findClaimsByCarId(carId);
-
-            List<HistoryEventDto> events = new ArrayList<>();
-            
-            // Add insurance policies as events
-            for (InsurancePolicy policy : policies) {
-                events.add(new HistoryEventDto(
-                    "INSURANCE_POLICY", 
-                    policy.getStartDate(), 
-                    "Insurance policy started with " + policy.getProvider(),
-                    policy.getId()
-                ));
-                if (policy.getEndDate() != null) {
-                    events.add(new HistoryEventDto(
-                        "INSURANCE_POLICY", 
-                        policy.getEndDate(), 
-                        "Insurance policy ended with " + policy.getProvider(),
-                        policy.getId()
-                    ));
-                }
+            if (limit != null && (limit < 1 || limit > MAX_HISTORY_PAGE)) {
+                return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_HISTORY_PAGE);
             }
-            
-            // Add claims as events
-            for (Claim claim : claims) {
-                events.add(new HistoryEventDto(
-                    "CLAIM", 
-                    claim.getClaimDate(), 
-                    claim.getDescription() + " - Amount: $" + claim.getAmount(),
-                    claim.getId()
-                ));
+            HistoryCursor cursor = after != null ? HistoryCursor.parse(after) : null;
+
+            String etag = carRevisionRegistry.carTag(carId);
+            if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+                return ConditionalResponses.notModified(etag, REVALIDATE);
             }
-            
-            // Sort by date to create chronological history
-            events.sort((a, b) -> a.date().compareTo(b.date()));
 
-            return ResponseEntity.ok(new CarHistoryResponse(carId, events));
+            CarHistoryRepository.HistoryPage page = service.findHistory(carId, cursor, limit);
+            String nextCursor = page.nextCursor() != null ? page.nextCursor().toString() : null;
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(new CarHistoryResponse(carId, page.events(), nextCursor));
 
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body("Something went wrong: " + e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid history request: " + e.getMessage());
+        }
+    }
+
+    /*
+    Streamed variant of the car history (stream=true): the events after the cursor, up to limit, as NDJSON written
+    while the query advances.
+     */
+    @GetMapping(value = "/cars/{carId}/history", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamCarHistory(@PathVariable Long carId,
+                                                                  @RequestParam(required = false) String after,
+                                                                  @RequestParam(required = false) Integer limit) {
+        if (!service.carExists(carId)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (limit != null && (limit < 1 || limit > MAX_HISTORY_PAGE)) {
+            return NdjsonResponses.badRequest("limit must be between 1 and " + MAX_HISTORY_PAGE);
+        }
+        HistoryCursor cursor;
+        try {
+            cursor = after != null ? HistoryCursor.parse(after) : null;
+        } catch (IllegalArgumentException e) {
+            return NdjsonResponses.badRequest("Invalid history request: " + e.getMessage());
         }
+        return NdjsonResponses.stream(objectMapper, HistoryEventDto.class,
+                sink -> service.streamHistory(carId, cursor, limit, sink));
     }
 
     /*
     For C) - Add validation: Protect the insurance validity check against invalid values
      */
     @GetMapping("/cars/{carId}/insurance-valid")
-    public ResponseEntity<?> isInsuranceValid(@Valid @PathVariable Long carId,@Valid @RequestParam String date ) {
+    public ResponseEntity<?> isInsuranceValid(@Valid @PathVariable Long carId,@Valid @RequestParam String date,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            // Check if car exists
-            Optional<Car> car = service.findCarById(carId);
-            if (car.isEmpty()) {
+            // Check if car exists (answered from the in-memory index, no database round-trip)
+            if (!service.carExists(carId)) {
                 return ResponseEntity.notFound().build();
             }
 
             LocalDate d = LocalDate.parse(date);
 
             // Validate date is not too far in past or future (simple range check)
-            LocalDate now = LocalDate.now();
-            if (d.isBefore(now.minusYears(50)) || d.isAfter(now.plusYears(50))) {
+            if (!isSupportedDate(d)) {
                 return ResponseEntity.badRequest().body("Date is outside supported range (50 years from today)");
             }
 
+            // Answers about past dates rarely change (only a back-dated policy can), so caches may reuse them for a
+            // while without asking; the rest is revalidated against the car's revision every time
+            CacheControl cacheControl = d.isBefore(LocalDate.now()) ? pastValidityCacheControl : REVALIDATE;
+            String etag = carRevisionRegistry.carTag(carId);
+            if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+                return ConditionalResponses.notModified(etag, cacheControl);
+            }
+
             boolean valid = service.isInsuranceValid(carId, d);
-            return ResponseEntity.ok(new InsuranceValidityResponse(carId, d.toString(), valid));
+            return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(new InsuranceValidityResponse(carId, d.toString(), valid));
 
         } catch (DateTimeParseException e) {
             return ResponseEntity.badRequest().body("Invalid date format. Please use YYYY-MM-DD format: " + e.getMessage());
         }
     }
 
+    /*
+    Car lookup by VIN for toll and parking partners. The VIN is resolved to the car id in memory, so unknown VINs
+    get 404 without touching the database.
+     */
+    @GetMapping("/cars/by-vin/{vin}")
+    public ResponseEntity<?> getCarByVin(@PathVariable String vin) {
+        OptionalLong carId = service.findCarIdByVin(vin);
+        if (carId.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<CarDto> car = service.findCar(carId.getAsLong());
+        if (car.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(car.get());
+    }
+
+    /*
+    Insurance validity by VIN: same answer, ETag and caching as the check by car id, with no database access
+    once the VIN and interval indexes are warm.
+     */
+    @GetMapping("/cars/by-vin/{vin}/insurance-valid")
+    public ResponseEntity<?> isInsuranceValidByVin(@PathVariable String vin, @RequestParam String date,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        OptionalLong carId = service.findCarIdByVin(vin);
+        if (carId.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return isInsuranceValid(carId.getAsLong(), date, ifNoneMatch);
+    }
+
+    /*
+    Bulk insurance validity for fleet checks: one date with a list of car IDs and/or explicit (carId, date) pairs.
+    Unknown cars are listed separately instead of failing the whole batch.
+     */
+    @PostMapping("/cars/insurance-valid/batch")
+    public ResponseEntity<?> isInsuranceValidBatch(@RequestBody @Valid InsuranceValidityBatchDto batchDto, BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            StringBuilder errorMessage = new StringBuilder();
+            for (ObjectError error : bindingResult.getAllErrors()) {
+                errorMessage.append(error.getDefaultMessage()).append("; ");
+            }
+            return ResponseEntity.badRequest().body("Validation failed: " + errorMessage);
+        }
+
+        if (batchDto.getCarIds() != null && !batchDto.getCarIds().isEmpty() && batchDto.getDate() == null) {
+            return ResponseEntity.badRequest().body("Validation failed: date is required together with carIds");
+        }
+        if (batchDto.size() == 0) {
+            return ResponseEntity.badRequest().body("Validation failed: provide date and carIds, or checks");
+        }
+        if (batchDto.size() > MAX_VALIDITY_CHECKS) {
+            return ResponseEntity.badRequest().body("Too many checks, at most " + MAX_VALIDITY_CHECKS + " per request");
+        }
 
+        List<ValidityCheckDto> checks = batchDto.toChecks();
+        LinkedHashSet<Long> carIds = new LinkedHashSet<>();
+        for (ValidityCheckDto check : checks) {
+            if (!isSupportedDate(check.date())) {
+                return ResponseEntity.badRequest().body("Date " + check.date() + " is outside supported range (50 years from today)");
+            }
+            carIds.add(check.carId());
+        }
 
+        Map<Long, CoverageIntervals> coverage = service.findCoverage(carIds);
 
-    private CarDto toDto(Car c) {
-        var o = c.getOwner();
-        return new CarDto(c.getId(), c.getVin(), c.getMake(), c.getModel(), c.getYearOfManufacture(),
-                o != null ? o.getId() : null,
-                o != null ? o.getName() : null,
-                o != null ? o.getEmail() : null);
+        List<InsuranceValidityResponse> results = new ArrayList<>(checks.size());
+        for (ValidityCheckDto check : checks) {
+            CoverageIntervals intervals = coverage.get(check.carId());
+            if (intervals != null) {
+                results.add(new InsuranceValidityResponse(check.carId(), check.date().toString(), intervals.covers(check.date())));
+            }
+        }
+        List<Long> unknownCarIds = carIds.stream().filter(id -> !coverage.containsKey(id)).toList();
+
+        return ResponseEntity.ok(new InsuranceValidityBatchResponse(results, unknownCarIds));
     }
 
-    public record InsuranceValidityResponse(Long carId, String date, boolean valid) {}
-    public record CarHistoryResponse(Long carId, List<HistoryEventDto> events) {}
+    private static boolean isSupportedDate(LocalDate date) {
+        LocalDate now = LocalDate.now();
+        return !date.isBefore(now.minusYears(50)) && !date.isAfter(now.plusYears(50));
+    }
 
+    private static String validationErrors(BindingResult bindingResult) {
+        StringBuilder errorMessage = new StringBuilder();
+        for (ObjectError error : bindingResult.getAllErrors()) {
+            errorMessage.append(error.getDefaultMessage()).append("; ");
+        }
+        return "Validation failed: " + errorMessage;
+    }
+
+    public record InsuranceValidityResponse(Long carId, String date, boolean valid) {}
+    public record CarHistoryResponse(Long carId, List<HistoryEventDto> events, String nextCursor) {}
+    public record InsuranceValidityBatchResponse(List<InsuranceValidityResponse> results, List<Long> unknownCarIds) {}
+    public record ClaimSubmissionResponse(String trackingId, String status) {}
 }
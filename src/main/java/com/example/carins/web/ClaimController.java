@@ -0,0 +1,57 @@
+package com.example.carins.web;
+
+import com.example.carins.service.ClaimService;
+import com.example.carins.service.ClaimSubmissionService;
+import com.example.carins.web.dto.ClaimBatchResultDto;
+import com.example.carins.web.dto.ClaimDto;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/claims")
+public class ClaimController {
+
+    private static final int MAX_BATCH_CLAIMS = 10_000;
+
+    private final ClaimService claimService;
+    private final ClaimSubmissionService claimSubmissionService;
+
+    public ClaimController(ClaimService claimService, ClaimSubmissionService claimSubmissionService) {
+        this.claimService = claimService;
+        this.claimSubmissionService = claimSubmissionService;
+    }
+
+    /*
+    Batch claim ingestion for repair shops and partner insurers. Every item is validated on its own, the response
+    reports per item whether it was stored (claimId) or rejected (error).
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> registerClaims(@RequestBody List<ClaimDto> claimDtos) {
+        if (claimDtos == null || claimDtos.isEmpty()) {
+            return ResponseEntity.badRequest().body("Validation failed: at least one claim is required");
+        }
+        if (claimDtos.size() > MAX_BATCH_CLAIMS) {
+            return ResponseEntity.badRequest().body("Too many claims, at most " + MAX_BATCH_CLAIMS + " per request");
+        }
+
+        List<ClaimBatchResultDto> results = claimService.createClaims(claimDtos);
+        int created = (int) results.stream().filter(ClaimBatchResultDto::isCreated).count();
+
+        return ResponseEntity.ok(new ClaimBatchResponse(results.size(), created, results.size() - created, results));
+    }
+
+    /*
+    Outcome of a claim submitted with POST /api/cars/{carId}/claims?async=true: PENDING until the background
+    consumer stored it, then CREATED with claimId or REJECTED with error.
+     */
+    @GetMapping("/submissions/{trackingId}")
+    public ResponseEntity<?> getSubmission(@PathVariable String trackingId) {
+        return claimSubmissionService.findSubmission(trackingId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body("Claim submission " + trackingId + " not found"));
+    }
+
+    public record ClaimBatchResponse(int received, int created, int failed, List<ClaimBatchResultDto> results) {}
+}
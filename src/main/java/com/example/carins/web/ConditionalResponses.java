@@ -0,0 +1,28 @@
+package com.example.carins.web;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Conditional GET support: matches If-None-Match against the current ETag so unchanged resources are answered
+ * with 304 before any query runs.
+ */
+final class ConditionalResponses {
+
+    private ConditionalResponses() {}
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2); // If-None-Match uses the weak comparison
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    static ResponseEntity<?> notModified(String etag, CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+    }
+}
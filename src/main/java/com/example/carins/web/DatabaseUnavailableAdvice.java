@@ -0,0 +1,39 @@
+package com.example.carins.web;
+
+import jakarta.persistence.PersistenceException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Turns "no database connection available" (pool or bulkhead exhausted) into a retryable 503 instead of a 500.
+ * Behind the lazy connection proxy the connection is only fetched at the first statement, so the shortage also
+ * arrives as a statement failure (TransientDataAccessResourceException from JDBC, DataAccessResourceFailureException
+ * or a plain PersistenceException from JPA); those are recognized by the SQLTransientConnectionException they wrap.
+ */
+@RestControllerAdvice
+public class DatabaseUnavailableAdvice {
+
+    @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class})
+    public ResponseEntity<?> databaseUnavailable(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Database busy, retry later");
+    }
+
+    // any other data access failure is rethrown and handled as before
+    @ExceptionHandler({DataAccessException.class, PersistenceException.class})
+    public ResponseEntity<?> statementFailed(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException) return databaseUnavailable(e);
+        }
+        throw e;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.carins.web;
+
+import com.example.carins.repo.projection.ClaimExportRow;
+import com.example.carins.repo.projection.PolicyExportRow;
+import com.example.carins.service.ExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+@RestController
+@RequestMapping("/api/exports")
+public class ExportController {
+
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+
+    public ExportController(ExportService exportService, ObjectMapper objectMapper,
+                            @Value("${carins.export.timeout:1h}") Duration timeout) {
+        this.exportService = exportService;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+    }
+
+    /*
+    Every insurance policy, ordered by id, as a CSV (default) or NDJSON download, gzip-compressed with gzip=true.
+    from/to (YYYY-MM-DD, both optional and inclusive) filter on the policy end date. Rows are written as the
+    database cursor reaches them, so the size of the export does not matter to the server's memory. The download may
+    take up to carins.export.timeout.
+     */
+    @GetMapping("/policies")
+    public ResponseEntity<StreamingResponseBody> exportPolicies(@RequestParam(required = false) String from,
+                                                                @RequestParam(required = false) String to,
+                                                                @RequestParam(defaultValue = "csv") String format,
+                                                                @RequestParam(defaultValue = "false") boolean gzip) {
+        extendAsyncTimeout();
+        try {
+            LocalDate endFrom = date(from);
+            LocalDate endTo = date(to);
+            checkRange(endFrom, endTo);
+            return ExportResponses.stream(objectMapper, "policies", ExportResponses.format(format), gzip, PolicyExportRow.class,
+                    sink -> exportService.exportPolicies(endFrom, endTo, sink));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return NdjsonResponses.badRequest("Validation failed: " + e.getMessage());
+        }
+    }
+
+    /*
+    Every claim, ordered by id, in the same formats; from/to filter on the claim date.
+     */
+    @GetMapping("/claims")
+    public ResponseEntity<StreamingResponseBody> exportClaims(@RequestParam(required = false) String from,
+                                                              @RequestParam(required = false) String to,
+                                                              @RequestParam(defaultValue = "csv") String format,
+                                                              @RequestParam(defaultValue = "false") boolean gzip) {
+        extendAsyncTimeout();
+        try {
+            LocalDate claimFrom = date(from);
+            LocalDate claimTo = date(to);
+            checkRange(claimFrom, claimTo);
+            return ExportResponses.stream(objectMapper, "claims", ExportResponses.format(format), gzip, ClaimExportRow.class,
+                    sink -> exportService.exportClaims(claimFrom, claimTo, sink));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return NdjsonResponses.badRequest("Validation failed: " + e.getMessage());
+        }
+    }
+
+    // A slow client may need longer than MVC's 30s async default to read a whole export; only exports get
+    // carins.export.timeout, other async requests keep the default. A client that stops reading altogether is still
+    // dropped by Tomcat's socket write timeout. Nothing to set when called outside a request.
+    private void extendAsyncTimeout() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(attributes.getRequest()).getAsyncWebRequest();
+            if (asyncRequest != null) {
+                asyncRequest.setTimeout(timeout.toMillis());
+            }
+        }
+    }
+
+    private static LocalDate date(String value) {
+        return value != null ? LocalDate.parse(value) : null;
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+    }
+}
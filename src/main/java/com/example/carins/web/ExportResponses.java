@@ -0,0 +1,117 @@
+package com.example.carins.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds file download responses that write records as CSV or NDJSON while the producer hands them over, optionally
+ * gzip-compressed. CSV columns are the record components, in declaration order. Only a fixed-size buffer is held,
+ * whatever the number of rows.
+ */
+final class ExportResponses {
+
+    enum Format { CSV, NDJSON }
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType GZIP = new MediaType("application", "gzip");
+
+    private ExportResponses() {}
+
+    static Format format(String value) {
+        try {
+            return Format.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("format must be csv or ndjson");
+        }
+    }
+
+    static <T extends Record> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, String name,
+                                                                           Format format, boolean gzip, Class<T> type,
+                                                                           Consumer<Consumer<T>> producer) {
+        String fileName = name + (format == Format.CSV ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_BYTES) : out;
+            if (format == Format.CSV) {
+                writeCsv(target, type, producer);
+            } else {
+                writeNdjson(objectMapper, target, type, producer);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : format == Format.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    private static <T> void writeNdjson(ObjectMapper objectMapper, OutputStream out, Class<T> type,
+                                        Consumer<Consumer<T>> producer) throws IOException {
+        try (SequenceWriter writer = objectMapper.writerFor(type).withRootValueSeparator("\n").writeValues(out)) {
+            producer.accept(item -> {
+                try {
+                    writer.write(item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static <T extends Record> void writeCsv(OutputStream out, Class<T> type, Consumer<Consumer<T>> producer) throws IOException {
+        RecordComponent[] components = type.getRecordComponents();
+        Method[] accessors = Arrays.stream(components).map(RecordComponent::getAccessor).toArray(Method[]::new);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_BYTES)) {
+            for (int i = 0; i < components.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(components[i].getName());
+            }
+            writer.write('\n');
+            producer.accept(item -> {
+                try {
+                    for (int i = 0; i < accessors.length; i++) {
+                        if (i > 0) writer.write(',');
+                        writeCsvField(writer, accessors[i].invoke(item));
+                    }
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break and double the quotes inside
+    private static void writeCsvField(Writer writer, Object value) throws IOException {
+        if (value == null) return;
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.carins.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Builds NDJSON responses that serialize items one by one as the producer hands them over. Handlers return them
+ * as {@code ResponseEntity<StreamingResponseBody>}, which Spring MVC writes asynchronously.
+ */
+final class NdjsonResponses {
+
+    private NdjsonResponses() {}
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Class<T> type, Consumer<Consumer<T>> producer) {
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writerFor(type).withRootValueSeparator("\n").writeValues(out)) {
+                producer.accept(item -> {
+                    try {
+                        writer.write(item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // a request rejected before streaming started, with its reason as plain text
+    static ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.carins.web;
+
+import com.example.carins.service.OwnerService;
+import com.example.carins.web.dto.OwnerCarDto;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/owners")
+public class OwnerController {
+
+    private static final int DEFAULT_PORTFOLIO_PAGE = 100;
+    private static final int MAX_PORTFOLIO_PAGE = 1_000;
+    private static final String NEXT_AFTER_HEADER = "X-Next-After";
+
+    private final OwnerService ownerService;
+
+    public OwnerController(OwnerService ownerService) {
+        this.ownerService = ownerService;
+    }
+
+    /*
+    Owner portfolio: the owner's cars with the policy active on date (default today) and their claim totals,
+    in car id order. Paged like /api/cars, X-Next-After carries the after value of the next page.
+     */
+    @GetMapping("/{ownerId}/portfolio")
+    public ResponseEntity<?> getPortfolio(@PathVariable Long ownerId,
+                                          @RequestParam(required = false) String date,
+                                          @RequestParam(defaultValue = "0") long after,
+                                          @RequestParam(defaultValue = "" + DEFAULT_PORTFOLIO_PAGE) int limit) {
+        if (limit < 1 || limit > MAX_PORTFOLIO_PAGE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PORTFOLIO_PAGE);
+        }
+        try {
+            LocalDate onDate = date != null ? LocalDate.parse(date) : LocalDate.now();
+            OwnerService.OwnerPortfolio portfolio = ownerService.findPortfolio(ownerId, onDate, after, limit);
+            OwnerPortfolioResponse body = new OwnerPortfolioResponse(portfolio.ownerId(), portfolio.name(),
+                    portfolio.email(), onDate.toString(), portfolio.cars());
+            if (portfolio.nextAfter() != null) {
+                return ResponseEntity.ok().header(NEXT_AFTER_HEADER, String.valueOf(portfolio.nextAfter())).body(body);
+            }
+            return ResponseEntity.ok(body);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid date format. Please use YYYY-MM-DD format: " + e.getMessage());
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    public record OwnerPortfolioResponse(Long ownerId, String name, String email, String date, List<OwnerCarDto> cars) {}
+}
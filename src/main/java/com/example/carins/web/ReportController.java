@@ -0,0 +1,192 @@
+package com.example.carins.web;
+
+import com.example.carins.repo.projection.CarClaimTotals;
+import com.example.carins.repo.projection.CoverageAnomaly;
+import com.example.carins.repo.projection.MonthlyClaimTotals;
+import com.example.carins.repo.projection.OwnerClaimTotals;
+import com.example.carins.service.CarIdSet;
+import com.example.carins.service.ClaimReportService;
+import com.example.carins.service.CoverageReportService;
+import com.example.carins.service.CoverageSnapshot;
+import com.example.carins.service.CoverageSnapshotService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+@RestController
+@RequestMapping("/api/reports")
+public class ReportController {
+
+    private static final int DEFAULT_REPORT_PAGE = 100;
+    private static final int MAX_REPORT_PAGE = 1_000;
+    private static final String NEXT_AFTER_HEADER = "X-Next-After";
+
+    private final ClaimReportService claimReportService;
+    private final CoverageReportService coverageReportService;
+    private final CoverageSnapshotService coverageSnapshotService;
+
+    public ReportController(ClaimReportService claimReportService, CoverageReportService coverageReportService,
+                            CoverageSnapshotService coverageSnapshotService) {
+        this.claimReportService = claimReportService;
+        this.coverageReportService = coverageReportService;
+        this.coverageSnapshotService = coverageSnapshotService;
+    }
+
+    /*
+    Claim count and amount per car for the months from..to (yyyy-MM, both optional and inclusive), ordered by car id.
+    Paged like /api/cars: X-Next-After carries the after value of the next page.
+     */
+    @GetMapping("/claims/by-car")
+    public ResponseEntity<?> claimTotalsByCar(@RequestParam(required = false) String from,
+                                              @RequestParam(required = false) String to,
+                                              @RequestParam(required = false) Long ownerId,
+                                              @RequestParam(defaultValue = "0") long after,
+                                              @RequestParam(defaultValue = "" + DEFAULT_REPORT_PAGE) int limit) {
+        if (limit < 1 || limit > MAX_REPORT_PAGE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_REPORT_PAGE);
+        }
+        try {
+            List<CarClaimTotals> totals = claimReportService.totalsByCar(month(from), month(to), after, ownerId, limit + 1);
+            return page(totals, limit, CarClaimTotals::carId);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation failed: " + e.getMessage());
+        }
+    }
+
+    /*
+    Claim count and amount per owner, summed over all of the owner's cars, ordered by owner id.
+     */
+    @GetMapping("/claims/by-owner")
+    public ResponseEntity<?> claimTotalsByOwner(@RequestParam(required = false) String from,
+                                                @RequestParam(required = false) String to,
+                                                @RequestParam(defaultValue = "0") long after,
+                                                @RequestParam(defaultValue = "" + DEFAULT_REPORT_PAGE) int limit) {
+        if (limit < 1 || limit > MAX_REPORT_PAGE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_REPORT_PAGE);
+        }
+        try {
+            List<OwnerClaimTotals> totals = claimReportService.totalsByOwner(month(from), month(to), after, limit + 1);
+            return page(totals, limit, OwnerClaimTotals::ownerId);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation failed: " + e.getMessage());
+        }
+    }
+
+    /*
+    Claim count and amount per calendar month, for the whole fleet or narrowed to one car or one owner.
+     */
+    @GetMapping("/claims/by-month")
+    public ResponseEntity<?> claimTotalsByMonth(@RequestParam(required = false) String from,
+                                                @RequestParam(required = false) String to,
+                                                @RequestParam(required = false) Long carId,
+                                                @RequestParam(required = false) Long ownerId) {
+        try {
+            List<MonthlyClaimTotals> totals = claimReportService.totalsByMonth(month(from), month(to), carId, ownerId);
+            return ResponseEntity.ok(totals);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation failed: " + e.getMessage());
+        }
+    }
+
+    /*
+    Coverage gaps and overlaps found by the last run of the coverage job, optionally for one car and/or one kind
+    (GAP or OVERLAP), ordered by id and paged with after/limit and X-Next-After.
+     */
+    @GetMapping("/coverage-anomalies")
+    public ResponseEntity<?> coverageAnomalies(@RequestParam(required = false) Long carId,
+                                               @RequestParam(required = false) String kind,
+                                               @RequestParam(defaultValue = "0") long after,
+                                               @RequestParam(defaultValue = "" + DEFAULT_REPORT_PAGE) int limit) {
+        if (limit < 1 || limit > MAX_REPORT_PAGE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_REPORT_PAGE);
+        }
+        if (kind != null && !kind.equals(CoverageAnomaly.GAP) && !kind.equals(CoverageAnomaly.OVERLAP)) {
+            return ResponseEntity.badRequest().body("Validation failed: kind must be GAP or OVERLAP");
+        }
+        List<CoverageAnomaly> anomalies = coverageReportService.findAnomalies(carId, kind, after, limit + 1);
+        return page(anomalies, limit, CoverageAnomaly::id);
+    }
+
+    /*
+    Number of cars with an active policy on the date (yyyy-MM-dd). The first request for a date scans the policies
+    once and stores the result; later ones are answered from the stored snapshot.
+     */
+    @GetMapping("/coverage-snapshots/{date}")
+    public ResponseEntity<?> coverageSnapshot(@PathVariable String date) {
+        try {
+            CoverageSnapshot snapshot = coverageSnapshotService.snapshot(LocalDate.parse(date));
+            return ResponseEntity.ok(new CoverageSnapshotResponse(snapshot.date().toString(),
+                    snapshot.insuredCars().size(), snapshot.computedAt()));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Validation failed: " + e.getMessage());
+        }
+    }
+
+    /*
+    Ids of the cars insured on the date, ascending, paged with after/limit and X-Next-After.
+     */
+    @GetMapping("/coverage-snapshots/{date}/cars")
+    public ResponseEntity<?> coverageSnapshotCars(@PathVariable String date,
+                                                  @RequestParam(defaultValue = "0") long after,
+                                                  @RequestParam(defaultValue = "" + DEFAULT_REPORT_PAGE) int limit) {
+        if (limit < 1 || limit > MAX_REPORT_PAGE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_REPORT_PAGE);
+        }
+        try {
+            CoverageSnapshot snapshot = coverageSnapshotService.snapshot(LocalDate.parse(date));
+            return page(snapshot.insuredCars().page(after, limit + 1), limit, Long::longValue);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Validation failed: " + e.getMessage());
+        }
+    }
+
+    /*
+    Cars insured on from but no longer on to: their number and one page of their ids, paged like the snapshot cars.
+     */
+    @GetMapping("/coverage-snapshots/diff")
+    public ResponseEntity<?> coverageSnapshotDiff(@RequestParam String from,
+                                                  @RequestParam String to,
+                                                  @RequestParam(defaultValue = "0") long after,
+                                                  @RequestParam(defaultValue = "" + DEFAULT_REPORT_PAGE) int limit) {
+        if (limit < 1 || limit > MAX_REPORT_PAGE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_REPORT_PAGE);
+        }
+        try {
+            CoverageSnapshot before = coverageSnapshotService.snapshot(LocalDate.parse(from));
+            CoverageSnapshot later = coverageSnapshotService.snapshot(LocalDate.parse(to));
+            CarIdSet uninsured = before.insuredCars().minus(later.insuredCars());
+
+            List<Long> carIds = uninsured.page(after, limit + 1);
+            CoverageDiffResponse body = new CoverageDiffResponse(before.date().toString(), later.date().toString(),
+                    uninsured.size(), carIds.subList(0, Math.min(limit, carIds.size())));
+            if (carIds.size() > limit) {
+                return ResponseEntity.ok().header(NEXT_AFTER_HEADER, String.valueOf(carIds.get(limit - 1))).body(body);
+            }
+            return ResponseEntity.ok(body);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Validation failed: " + e.getMessage());
+        }
+    }
+
+    private static YearMonth month(String value) {
+        return value != null ? YearMonth.parse(value) : null;
+    }
+
+    // rows holds one extra row when another page exists
+    private static <T> ResponseEntity<List<T>> page(List<T> rows, int limit, ToLongFunction<T> key) {
+        if (rows.size() > limit) {
+            List<T> page = rows.subList(0, limit);
+            return ResponseEntity.ok().header(NEXT_AFTER_HEADER, String.valueOf(key.applyAsLong(page.get(limit - 1)))).body(page);
+        }
+        return ResponseEntity.ok(rows);
+    }
+
+    public record CoverageSnapshotResponse(String date, int insuredCars, Instant computedAt) {}
+    public record CoverageDiffResponse(String from, String to, int newlyUninsured, List<Long> carIds) {}
+}
@@ -0,0 +1,19 @@
+package com.example.carins.web.dto;
+
+/**
+ * Outcome of one item of a claim batch: {@code claimId} when stored, otherwise {@code error}.
+ */
+public record ClaimBatchResultDto(int index, Long claimId, String error) {
+
+    public static ClaimBatchResultDto created(int index, Long claimId) {
+        return new ClaimBatchResultDto(index, claimId, null);
+    }
+
+    public static ClaimBatchResultDto failed(int index, String error) {
+        return new ClaimBatchResultDto(index, null, error);
+    }
+
+    public boolean isCreated() {
+        return claimId != null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+
+/**
+ * One row of a fleet import: a car, its owner (matched by email) and optionally one policy.
+ */
+public class FleetImportRowDto {
+
+    @NotBlank(message = "VIN is required")
+    @Size(min = 5, max = 32, message = "VIN must be 5 to 32 characters")
+    @Pattern(regexp = "\\p{ASCII}+", message = "VIN must contain only ASCII characters") // see VinIndex
+    private String vin;
+
+    private String make;
+    private String model;
+
+    @NotNull(message = "Year of manufacture is required")
+    private Integer yearOfManufacture;
+
+    @NotBlank(message = "Owner name is required")
+    private String ownerName;
+
+    @NotBlank(message = "Owner email is required")
+    @Email(message = "Owner email is not valid")
+    private String ownerEmail;
+
+    private String provider;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    public FleetImportRowDto() {}
+
+    public FleetImportRowDto(String vin, String make, String model, Integer yearOfManufacture, String ownerName,
+                             String ownerEmail, String provider, LocalDate startDate, LocalDate endDate) {
+        this.vin = vin;
+        this.make = make;
+        this.model = model;
+        this.yearOfManufacture = yearOfManufacture;
+        this.ownerName = ownerName;
+        this.ownerEmail = ownerEmail;
+        this.provider = provider;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    @JsonIgnore
+    public boolean hasPolicy() {
+        return provider != null || startDate != null || endDate != null;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "A policy needs a start date and an end date, the start not after the end")
+    public boolean isPolicyComplete() {
+        return !hasPolicy() || (startDate != null && endDate != null && !startDate.isAfter(endDate));
+    }
+
+    public String getVin() { return vin; }
+    public void setVin(String vin) { this.vin = vin; }
+
+    public String getMake() { return make; }
+    public void setMake(String make) { this.make = make; }
+
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+
+    public Integer getYearOfManufacture() { return yearOfManufacture; }
+    public void setYearOfManufacture(Integer yearOfManufacture) { this.yearOfManufacture = yearOfManufacture; }
+
+    public String getOwnerName() { return ownerName; }
+    public void setOwnerName(String ownerName) { this.ownerName = ownerName; }
+
+    public String getOwnerEmail() { return ownerEmail; }
+    public void setOwnerEmail(String ownerEmail) { this.ownerEmail = ownerEmail; }
+
+    public String getProvider() { return provider; }
+    public void setProvider(String provider) { this.provider = provider; }
+
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+}
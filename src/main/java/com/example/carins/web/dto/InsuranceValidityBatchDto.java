@@ -0,0 +1,54 @@
+package com.example.carins.web.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Either one {@code date} applied to every id in {@code carIds}, or explicit {@code checks}; both may be combined.
+ */
+public class InsuranceValidityBatchDto {
+
+    private LocalDate date;
+
+    private List<@NotNull(message = "Car IDs must not be null") Long> carIds;
+
+    private List<@Valid ValidityCheckDto> checks;
+
+    public InsuranceValidityBatchDto() {}
+
+    public InsuranceValidityBatchDto(LocalDate date, List<Long> carIds, List<ValidityCheckDto> checks) {
+        this.date = date;
+        this.carIds = carIds;
+        this.checks = checks;
+    }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public List<Long> getCarIds() { return carIds; }
+    public void setCarIds(List<Long> carIds) { this.carIds = carIds; }
+
+    public List<ValidityCheckDto> getChecks() { return checks; }
+    public void setChecks(List<ValidityCheckDto> checks) { this.checks = checks; }
+
+    public int size() {
+        return (carIds != null ? carIds.size() : 0) + (checks != null ? checks.size() : 0);
+    }
+
+    public List<ValidityCheckDto> toChecks() {
+        List<ValidityCheckDto> all = new ArrayList<>(size());
+        if (carIds != null && date != null) {
+            for (Long carId : carIds) {
+                all.add(new ValidityCheckDto(carId, date));
+            }
+        }
+        if (checks != null) {
+            all.addAll(checks);
+        }
+        return all;
+    }
+}
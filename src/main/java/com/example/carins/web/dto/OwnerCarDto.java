@@ -0,0 +1,11 @@
+package com.example.carins.web.dto;
+
+import com.example.carins.repo.projection.ActivePolicy;
+
+import java.math.BigDecimal;
+
+/**
+ * One car of an owner's portfolio: the policy active on the requested date (null if uninsured) and all-time claim totals.
+ */
+public record OwnerCarDto(Long id, String vin, String make, String model, int year, ActivePolicy activePolicy,
+                          long claimCount, BigDecimal claimTotal) {}
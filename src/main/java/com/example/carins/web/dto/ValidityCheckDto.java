@@ -0,0 +1,8 @@
+package com.example.carins.web.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+
+public record ValidityCheckDto(@NotNull(message = "Car ID is required") Long carId,
+                               @NotNull(message = "Date is required") LocalDate date) {}
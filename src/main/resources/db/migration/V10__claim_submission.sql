@@ -0,0 +1,24 @@
+-- Claims accepted asynchronously (POST /api/cars/{carId}/claims?async=true) and waiting to be stored. Appending
+-- one is a single narrow insert, with no foreign key to check; the consumer stores PENDING rows in id order in
+-- batches and records the outcome (CREATED with the claim id, or REJECTED with the reason) for status polling.
+
+create table claim_submission (
+    id           bigint generated by default as identity,
+    tracking_id  varchar(36) not null,
+    car_id       bigint not null,
+    claim_date   date not null,
+    description  varchar(255) not null,
+    amount       numeric(38,2) not null,
+    status       varchar(16) not null,
+    claim_id     bigint,
+    error        varchar(500),
+    submitted_at timestamp(6) with time zone not null,
+    processed_at timestamp(6) with time zone,
+    primary key (id)
+);
+
+-- status polling by the id handed to the client
+create unique index ux_claim_submission_tracking on claim_submission (tracking_id);
+
+-- consumer: PENDING rows in submission order, and the pending gauge
+create index ix_claim_submission_status on claim_submission (status, id);
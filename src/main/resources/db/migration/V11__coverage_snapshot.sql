@@ -0,0 +1,11 @@
+-- Materialized "cars insured on date D" sets for regulator reports. The bitmap holds one bit per car id (bit n set
+-- when car n had an active policy on the date), so a fleet of ten million cars takes about 1.2 MB per date.
+-- Rows are written by the first request for a date and deleted again when a policy covering the date is created.
+
+create table coverage_snapshot (
+    snapshot_date date not null,
+    insured_cars  bigint not null,
+    bitmap        blob not null,
+    computed_at   timestamp(6) with time zone not null,
+    primary key (snapshot_date)
+);
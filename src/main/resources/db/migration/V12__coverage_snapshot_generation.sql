@@ -0,0 +1,11 @@
+-- Bumped by every coverage snapshot invalidation, in the transaction that deletes the affected snapshots. A node
+-- reads it before scanning the policies and stores its snapshot only if it is unchanged, under the row lock, so a
+-- snapshot computed before another node's invalidation can never be written back after it.
+
+create table coverage_snapshot_generation (
+    id         int not null,
+    generation bigint not null,
+    primary key (id)
+);
+
+insert into coverage_snapshot_generation (id, generation) values (1, 0);
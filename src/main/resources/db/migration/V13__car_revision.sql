@@ -0,0 +1,4 @@
+-- Revision of everything the car read endpoints show about a car (its policies and claims), bumped in the
+-- transaction that writes them. ETags are built from it, so every node hands out the same tag for the same state.
+
+alter table car add column revision bigint default 0 not null;
@@ -0,0 +1,3 @@
+-- Version column for optimistic locking on job_checkpoint: a node that lost its lease while a chunk was running
+-- fails to save its stale checkpoint instead of moving it back behind the one the new lease holder wrote.
+alter table job_checkpoint add column version bigint default 0 not null;
@@ -0,0 +1,14 @@
+-- ETag revisions move out of car into a table of their own, so checking a tag never reads an entity table.
+-- Every write of a car takes the next value of car_revision_seq: unique across nodes and only ever growing, so a
+-- node refreshes its in-memory copy with the rows above the highest revision it has seen.
+alter table car drop column revision;
+
+create sequence car_revision_seq;
+
+create table car_revision (
+    car_id   bigint primary key,
+    revision bigint not null,
+    constraint fk_car_revision_car foreign key (car_id) references car
+);
+
+create index ix_car_revision_revision on car_revision (revision);
@@ -0,0 +1,49 @@
+-- Schema as previously generated by Hibernate from the entities (ddl-auto=create-drop)
+
+create sequence claim_seq start with 1 increment by 50;
+
+create table owner (
+    id    bigint generated by default as identity,
+    name  varchar(255) not null,
+    email varchar(255),
+    primary key (id)
+);
+
+create table car (
+    id                  bigint generated by default as identity,
+    vin                 varchar(32) not null,
+    make                varchar(255),
+    model               varchar(255),
+    year_of_manufacture integer not null,
+    owner_id            bigint not null,
+    primary key (id),
+    constraint fk_car_owner foreign key (owner_id) references owner
+);
+
+create table insurancepolicy (
+    id         bigint generated by default as identity,
+    car_id     bigint not null,
+    provider   varchar(255),
+    start_date date,
+    end_date   date not null,
+    primary key (id),
+    constraint fk_insurancepolicy_car foreign key (car_id) references car
+);
+
+create table claim (
+    id          bigint not null,
+    car_id      bigint not null,
+    claim_date  date not null,
+    description varchar(255) not null,
+    amount      numeric(38,2) not null,
+    primary key (id),
+    constraint fk_claim_car foreign key (car_id) references car
+);
+
+create table job_checkpoint (
+    name       varchar(255) not null,
+    last_date  date,
+    last_id    bigint,
+    updated_at timestamp(6) with time zone,
+    primary key (name)
+);
@@ -0,0 +1,18 @@
+-- Indexes for the repository query patterns; each is named after the table and its leading columns.
+
+-- CarRepository.findByVin; one car per VIN
+create unique index ux_car_vin on car (vin);
+
+-- cars listing filtered by owner and owner deletes checking the foreign key; H2 indexes foreign keys on its own,
+-- most other databases do not
+create index ix_car_owner on car (owner_id, id);
+
+-- InsurancePolicyRepository.existsActiveOnDate / findByCarId and the per-car period lookups:
+-- equality on car_id, range on start_date, end_date checked from the index without touching the row
+create index ix_insurancepolicy_car_dates on insurancepolicy (car_id, start_date, end_date);
+
+-- InsurancePolicyRepository.findByEndDate(Before) and the expiry job's (end_date, id) keyset, covering car_id
+create index ix_insurancepolicy_end_date on insurancepolicy (end_date, id, car_id);
+
+-- ClaimRepository.findByCarId and the car history, which reads a car's claims in date order
+create index ix_claim_car_date on claim (car_id, claim_date);
@@ -0,0 +1,19 @@
+-- Claim count and amount per car and calendar month, kept up to date by ClaimService so that
+-- reports read one row per (car, month) instead of every claim. claim_month is the first day of the month.
+
+create table claim_rollup (
+    car_id       bigint not null,
+    claim_month  date not null,
+    claim_count  bigint not null,
+    total_amount numeric(38,2) not null,
+    primary key (car_id, claim_month),
+    constraint fk_claim_rollup_car foreign key (car_id) references car
+);
+
+-- monthly reports across all cars
+create index ix_claim_rollup_month on claim_rollup (claim_month, car_id);
+
+insert into claim_rollup (car_id, claim_month, claim_count, total_amount)
+select car_id, cast(date_trunc('MONTH', claim_date) as date), count(*), sum(amount)
+from claim
+group by car_id, cast(date_trunc('MONTH', claim_date) as date);
@@ -0,0 +1,18 @@
+-- Uninsured gaps and overlaps between consecutive policies of a car, rebuilt by CoverageGapScheduler.
+-- GAP: no policy covers start_date..end_date. OVERLAP: both policies cover start_date..end_date.
+
+create table coverage_anomaly (
+    id               bigint generated by default as identity,
+    car_id           bigint not null,
+    kind             varchar(16) not null,
+    start_date       date not null,
+    end_date         date not null,
+    first_policy_id  bigint not null,
+    second_policy_id bigint not null,
+    detected_at      timestamp(6) with time zone not null,
+    primary key (id),
+    constraint fk_coverage_anomaly_car foreign key (car_id) references car
+);
+
+create index ix_coverage_anomaly_car on coverage_anomaly (car_id, id);
+create index ix_coverage_anomaly_kind on coverage_anomaly (kind, id);
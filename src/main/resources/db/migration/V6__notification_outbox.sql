@@ -0,0 +1,25 @@
+-- Upcoming-expiry notices waiting to be sent to owners. One row per (policy, end date), so re-running the
+-- enqueue step never queues a policy twice, while a policy whose end date moves gets a new notice.
+
+create table notification_outbox (
+    id              bigint generated by default as identity,
+    owner_id        bigint not null,
+    car_id          bigint not null,
+    policy_id       bigint not null,
+    end_date        date not null,
+    status          varchar(16) not null,
+    attempts        integer not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    created_at      timestamp(6) with time zone not null,
+    sent_at         timestamp(6) with time zone,
+    last_error      varchar(500),
+    primary key (id),
+    constraint fk_notification_outbox_owner foreign key (owner_id) references owner,
+    constraint fk_notification_outbox_car foreign key (car_id) references car,
+    constraint fk_notification_outbox_policy foreign key (policy_id) references insurancepolicy
+);
+
+create unique index ux_notification_outbox_policy on notification_outbox (policy_id, end_date);
+
+-- dispatcher: due PENDING notices grouped by owner
+create index ix_notification_outbox_pending on notification_outbox (status, owner_id, id);
@@ -0,0 +1,10 @@
+-- Time-bounded locks for scheduled work shared by several nodes. A lease is free once locked_until has passed,
+-- so a node that dies while holding one blocks the work for at most the lease duration.
+
+create table scheduler_lease (
+    name         varchar(64) not null,
+    locked_until timestamp(6) with time zone not null,
+    locked_at    timestamp(6) with time zone not null,
+    locked_by    varchar(255) not null,
+    primary key (name)
+);
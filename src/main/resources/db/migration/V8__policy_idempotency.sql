@@ -0,0 +1,20 @@
+-- Version column for optimistic locking on car: creating a policy bumps it, so two concurrent writers for the
+-- same car cannot both pass the overlap check, while writers for different cars never touch the same row.
+alter table car add column version bigint default 0 not null;
+
+-- Idempotency keys of policy creation requests. The primary key makes a retried request find the policy the
+-- first attempt created instead of inserting it again; the request itself is kept to reject a key reused for
+-- a different policy.
+
+create table policy_request (
+    idempotency_key varchar(128) not null,
+    car_id          bigint not null,
+    provider        varchar(255),
+    start_date      date,
+    end_date        date not null,
+    policy_id       bigint not null,
+    created_at      timestamp(6) with time zone not null,
+    primary key (idempotency_key),
+    constraint fk_policy_request_car foreign key (car_id) references car,
+    constraint fk_policy_request_policy foreign key (policy_id) references insurancepolicy
+);
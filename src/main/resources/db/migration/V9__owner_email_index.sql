@@ -0,0 +1,3 @@
+-- FleetImportRepository.findOwnerIdsByEmail: the fleet import resolves each chunk's owners by email; without an
+-- index every chunk scans the whole owner table. The id makes min(id) per email an index-only lookup.
+create index ix_owner_email on owner (email, id);
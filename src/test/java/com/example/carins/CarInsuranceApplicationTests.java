@@ -1,7 +1,6 @@
 package com.example.carins;
 
 import com.example.carins.service.CarService;
-import com.example.carins.service.InsurancePolicyService;
 import com.example.carins.service.PolicyExpiryScheduler;
 import com.example.carins.web.CarController;
 import com.example.carins.web.dto.ClaimDto;
@@ -24,9 +23,6 @@ class CarInsuranceApplicationTests {
     @Autowired
     CarService service;
 
-    @Autowired
-    InsurancePolicyService insurancePolicyService;
-
     @Autowired
     CarController carController;
 
@@ -52,7 +48,7 @@ class CarInsuranceApplicationTests {
         validator.validate(invalidDto, bindingResult);
 
         // Test via controller to get proper HTTP response with validation
-        ResponseEntity<?> response = carController.createInsurance(1L, invalidDto, bindingResult);
+        ResponseEntity<?> response = carController.createInsurance(1L, null, invalidDto, bindingResult);
 
         // Should return 400 Bad Request
         assertEquals(400, response.getStatusCode().value());
@@ -61,12 +57,12 @@ class CarInsuranceApplicationTests {
 
     @Test
     void validNewInsurance() {
-        InsurancePolicyDto insurancePolicyDto = new InsurancePolicyDto("Euroins", LocalDate.parse("2023-07-07"), LocalDate.parse("2024-07-07"));
+        InsurancePolicyDto insurancePolicyDto = new InsurancePolicyDto("Euroins", LocalDate.parse("2023-01-01"), LocalDate.parse("2023-12-31"));
 
         BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(insurancePolicyDto, "insurancePolicyDto");
         validator.validate(insurancePolicyDto, bindingResult);
 
-        ResponseEntity<?> response = carController.createInsurance(1L, insurancePolicyDto, bindingResult);
+        ResponseEntity<?> response = carController.createInsurance(1L, null, insurancePolicyDto, bindingResult);
 
         assertEquals(201, response.getStatusCode().value());
     }
@@ -81,7 +77,7 @@ class CarInsuranceApplicationTests {
         BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(invalidDto, "insurancePolicyDto");
         validator.validate(invalidDto, bindingResult);
 
-        ResponseEntity<?> response = carController.createInsurance(1L, invalidDto, bindingResult);
+        ResponseEntity<?> response = carController.createInsurance(1L, null, invalidDto, bindingResult);
 
         assertEquals(400, response.getStatusCode().value());
         assertTrue(response.getBody().toString().contains("Provider is required"));
@@ -154,7 +150,7 @@ class CarInsuranceApplicationTests {
 
     @Test
     void getCarHistoryValid() {
-        ResponseEntity<?> response = carController.getCarHistory(1L);
+        ResponseEntity<?> response = carController.getCarHistory(1L, null, null, null);
 
         assertEquals(200, response.getStatusCode().value());
         assertNotNull(response.getBody());
@@ -166,14 +162,14 @@ class CarInsuranceApplicationTests {
 
     @Test
     void getCarHistoryWithInvalidCarId() {
-        ResponseEntity<?> response = carController.getCarHistory(999L);
+        ResponseEntity<?> response = carController.getCarHistory(999L, null, null, null);
 
         assertEquals(404, response.getStatusCode().value());
     }
 
     @Test
     void getCarHistoryContainsChronologicalEvents() {
-        ResponseEntity<?> response = carController.getCarHistory(1L);
+        ResponseEntity<?> response = carController.getCarHistory(1L, null, null, null);
 
         assertEquals(200, response.getStatusCode().value());
 
@@ -186,26 +182,26 @@ class CarInsuranceApplicationTests {
      */
     @Test
     void validInsuranceValidityCheck() {
-        ResponseEntity<?> response = carController.isInsuranceValid(1L, "2023-07-15");
+        ResponseEntity<?> response = carController.isInsuranceValid(1L, "2023-07-15", null);
         assertEquals(200, response.getStatusCode().value());
     }
 
     @Test
     void invalidCarIdInsuranceValidityCheck() {
-        ResponseEntity<?> response = carController.isInsuranceValid(999L, "2023-07-15");
+        ResponseEntity<?> response = carController.isInsuranceValid(999L, "2023-07-15", null);
         assertEquals(404, response.getStatusCode().value());
     }
 
     @Test
     void invalidDateFormatInsuranceValidityCheck() {
-        ResponseEntity<?> response = carController.isInsuranceValid(1L, "invalid-date");
+        ResponseEntity<?> response = carController.isInsuranceValid(1L, "invalid-date", null);
         assertEquals(400, response.getStatusCode().value());
         assertTrue(response.getBody().toString().contains("Invalid date format"));
     }
 
     @Test
     void dateOutsideRangeInsuranceValidityCheck() {
-        ResponseEntity<?> response = carController.isInsuranceValid(1L, "1900-01-01");
+        ResponseEntity<?> response = carController.isInsuranceValid(1L, "1900-01-01", null);
         assertEquals(400, response.getStatusCode().value());
         assertTrue(response.getBody().toString().contains("outside supported range"));
     }
@@ -215,23 +211,22 @@ class CarInsuranceApplicationTests {
      */
     @Test
     void schedulerDoesNotLogSamePolicyTwice() {
-        policyExpiryScheduler.clearLoggedPolicyIds();
+        policyExpiryScheduler.resetCheckpoint();
 
-        policyExpiryScheduler.checkExpiredPolicies();
-        int firstRunLoggedCount = policyExpiryScheduler.getLoggedPolicyIds().size();
-        policyExpiryScheduler.checkExpiredPolicies();
-        int secondRunLoggedCount = policyExpiryScheduler.getLoggedPolicyIds().size();
+        int firstRunLoggedCount = policyExpiryScheduler.processExpiredPolicies();
+        int secondRunLoggedCount = policyExpiryScheduler.processExpiredPolicies();
 
-        // We check that logs are idetical multiple runs
-        assertEquals(firstRunLoggedCount, secondRunLoggedCount);
+        // The persisted checkpoint makes the second run skip everything already logged
+        assertTrue(firstRunLoggedCount > 0);
+        assertEquals(0, secondRunLoggedCount);
     }
 
     @Test
-    void schedulerCanClearLoggedPolicies() {
-        policyExpiryScheduler.checkExpiredPolicies();
-        policyExpiryScheduler.clearLoggedPolicyIds();
+    void schedulerCanResetCheckpoint() {
+        policyExpiryScheduler.processExpiredPolicies();
+        policyExpiryScheduler.resetCheckpoint();
 
-        assertTrue(policyExpiryScheduler.getLoggedPolicyIds().isEmpty());
+        assertTrue(policyExpiryScheduler.processExpiredPolicies() > 0);
     }
 
     @Test
@@ -240,6 +235,4 @@ class CarInsuranceApplicationTests {
         assertTrue(service.isInsuranceValid(1L, LocalDate.parse("2025-06-01")));
         assertFalse(service.isInsuranceValid(2L, LocalDate.parse("2025-02-01")));
     }
-
-
 }
@@ -0,0 +1,70 @@
+package com.example.carins.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the connection bulkhead used in virtual-thread mode
+ */
+@SpringBootTest
+class ConnectionBulkheadTests {
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replicaDataSource;
+
+    @Test
+    void applicationDataSourceIsBehindBulkhead() {
+        // routing to primary and replica, each pool with its own bulkhead
+        assertInstanceOf(LazyConnectionDataSourceProxy.class, dataSource);
+        assertInstanceOf(ConnectionBulkheadDataSource.class, primaryDataSource);
+        assertInstanceOf(ConnectionBulkheadDataSource.class, replicaDataSource);
+        assertNotNull(meterRegistry.find("carins.datasource.bulkhead.active").gauge());
+    }
+
+    @Test
+    void bulkheadRejectsBeyondQueueAndReleasesOnClose() throws Exception {
+        ConnectionBulkheadDataSource bulkhead = new ConnectionBulkheadDataSource(
+                ((ConnectionBulkheadDataSource) primaryDataSource).getTargetDataSource(), 1, 0, Duration.ofMillis(50));
+
+        Connection first = bulkhead.getConnection();
+        assertEquals(1, bulkhead.getActive());
+        assertThrows(SQLTransientConnectionException.class, bulkhead::getConnection);
+        assertEquals(1, bulkhead.getRejected());
+
+        first.close();
+        first.close(); // closing twice must not hand out a second permit
+        assertEquals(0, bulkhead.getActive());
+
+        Thread vt = Thread.ofVirtual().start(() -> {
+            try (Connection c = bulkhead.getConnection()) {
+                assertTrue(c.isValid(1));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        vt.join();
+        assertEquals(0, bulkhead.getActive());
+    }
+}
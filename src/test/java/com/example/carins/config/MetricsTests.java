@@ -0,0 +1,48 @@
+package com.example.carins.config;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.service.CarService;
+import com.example.carins.service.PolicyExpiryScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Micrometer instrumentation
+ */
+@SpringBootTest
+class MetricsTests {
+
+    @Autowired
+    CarService service;
+
+    @Autowired
+    PolicyExpiryScheduler policyExpiryScheduler;
+
+    @Autowired
+    CarRepository carRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void metricsAreRecordedForServicesRepositoriesAndHibernate() {
+        double checksBefore = meterRegistry.counter("carins.validity.checks", "source", "index").count();
+        service.isInsuranceValid(1L, LocalDate.parse("2025-06-01"));
+        assertEquals(checksBefore + 1, meterRegistry.counter("carins.validity.checks", "source", "index").count());
+
+        policyExpiryScheduler.processExpiredPolicies();
+        assertTrue(meterRegistry.get("carins.expiry.job").timer().count() > 0);
+        assertEquals(0.0, meterRegistry.get("carins.expiry.backlog").gauge().value());
+
+        carRepository.findAllIds();
+        assertTrue(meterRegistry.get("spring.data.repository.invocations").tag("repository", "CarRepository")
+                .tag("method", "findAllIds").timer().count() > 0);
+        assertNotNull(meterRegistry.find("hibernate.query.executions").functionCounter());
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.carins.config;
+
+import com.example.carins.service.ClaimService;
+import com.example.carins.web.CarController;
+import com.example.carins.web.DatabaseUnavailableAdvice;
+import com.example.carins.web.dto.ClaimDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for read/write datasource routing
+ */
+@SpringBootTest
+class ReadWriteRoutingTests {
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ClaimService claimService;
+
+    @Autowired
+    ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void readOnlyTransactionsReadFromTheReplicaUnlessPinned() {
+        // two separate embedded databases, told apart by the row they hold
+        DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1", "sa", "");
+        new JdbcTemplate(primary).execute("create table if not exists node (name varchar(16)); delete from node; insert into node values ('primary')");
+        new JdbcTemplate(replica).execute("create table if not exists node (name varchar(16)); delete from node; insert into node values ('replica')");
+
+        DataSource routing = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+        JdbcTemplate jdbc = new JdbcTemplate(routing);
+        TransactionTemplate readWrite = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        readOnly.setReadOnly(true);
+
+        assertEquals("primary", jdbc.queryForObject("select name from node", String.class));
+        assertEquals("primary", readWrite.execute(status -> jdbc.queryForObject("select name from node", String.class)));
+        assertEquals("replica", readOnly.execute(status -> jdbc.queryForObject("select name from node", String.class)));
+        assertEquals("primary", readOnly.execute(status -> {
+            ReadWriteRoutingDataSource.pinToPrimary();
+            return jdbc.queryForObject("select name from node", String.class);
+        }));
+        // the pin ends with its transaction
+        assertEquals("replica", readOnly.execute(status -> jdbc.queryForObject("select name from node", String.class)));
+    }
+
+    @Test
+    void carReadsStayOnThePrimaryRightAfterAWrite() {
+        assertFalse(readYourWritesTracker.recentlyWritten(999L));
+        claimService.createClaim(2L, new ClaimDto(2L, LocalDate.parse("2024-09-01"), "Dented door", new BigDecimal("210.00")));
+        assertTrue(readYourWritesTracker.recentlyWritten(2L));
+
+        ReadWriteRoutingDataSource.Target[] seen = new ReadWriteRoutingDataSource.Target[2];
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            readYourWritesTracker.readingCar(2L);
+            seen[0] = ReadWriteRoutingDataSource.currentTarget();
+        });
+        readOnly.executeWithoutResult(status -> {
+            readYourWritesTracker.readingCar(999L);
+            seen[1] = ReadWriteRoutingDataSource.currentTarget();
+        });
+
+        assertEquals(ReadWriteRoutingDataSource.Target.PRIMARY, seen[0]);
+        assertEquals(ReadWriteRoutingDataSource.Target.REPLICA, seen[1]);
+        assertEquals(200, carController.getCarHistory(2L, null, 100, null).getStatusCode().value());
+    }
+
+    @Test
+    void jpaReadOnlyTransactionsReadFromTheReplicaDatabase() throws Exception {
+        // two separate embedded databases with the application schema; only the primary knows the new owner
+        DataSource primary = migratedDatabase("jpa-routing-primary");
+        DataSource replica = migratedDatabase("jpa-routing-replica");
+        new JdbcTemplate(primary).update("insert into owner (name, email) values ('Primary Only', 'primary.only@example.com')");
+
+        LocalContainerEntityManagerFactoryBean factory = entityManagerFactory(
+                new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica)));
+        try {
+            EntityManagerFactory emf = factory.getObject();
+            JpaTransactionManager jpaTransactions = new JpaTransactionManager(emf);
+            TransactionTemplate readWrite = new TransactionTemplate(jpaTransactions);
+            TransactionTemplate readOnly = new TransactionTemplate(jpaTransactions);
+            readOnly.setReadOnly(true);
+            TransactionCallback<Long> countOwners = status -> EntityManagerFactoryUtils.getTransactionalEntityManager(emf)
+                    .createQuery("select count(o) from Owner o where o.email = 'primary.only@example.com'", Long.class)
+                    .getSingleResult();
+
+            assertEquals(1L, readWrite.execute(countOwners));
+            assertEquals(0L, readOnly.execute(countOwners));
+            assertEquals(1L, readOnly.<Long>execute(status -> {
+                ReadWriteRoutingDataSource.pinToPrimary();
+                return countOwners.doInTransaction(status);
+            }));
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void exhaustedBulkheadAnswers503FromJdbcAndJpaReads() throws Exception {
+        ConnectionBulkheadDataSource bulkhead = new ConnectionBulkheadDataSource(migratedDatabase("bulkhead-web"), 1, 0, Duration.ofMillis(50));
+        DataSource lazy = new LazyConnectionDataSourceProxy(bulkhead);
+        LocalContainerEntityManagerFactoryBean factory = entityManagerFactory(lazy);
+        try (Connection taken = bulkhead.getConnection()) {
+            TransactionTemplate jdbcRead = new TransactionTemplate(new DataSourceTransactionManager(lazy));
+            jdbcRead.setReadOnly(true);
+            EntityManagerFactory emf = factory.getObject();
+            TransactionTemplate jpaRead = new TransactionTemplate(new JpaTransactionManager(emf));
+            jpaRead.setReadOnly(true);
+
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(new BusyDatabaseController(
+                            () -> jdbcRead.execute(status -> new JdbcTemplate(lazy).queryForObject("select count(*) from car", Long.class)),
+                            () -> jpaRead.execute(status -> EntityManagerFactoryUtils.getTransactionalEntityManager(emf)
+                                    .createQuery("select count(c) from Car c", Long.class).getSingleResult())))
+                    .setControllerAdvice(new DatabaseUnavailableAdvice())
+                    .build();
+
+            for (String path : List.of("/jdbc", "/jpa")) {
+                mvc.perform(MockMvcRequestBuilders.get(path))
+                        .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                        .andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"));
+            }
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    @RestController
+    static class BusyDatabaseController {
+        private final Supplier<Long> jdbcRead;
+        private final Supplier<Long> jpaRead;
+
+        BusyDatabaseController(Supplier<Long> jdbcRead, Supplier<Long> jpaRead) {
+            this.jdbcRead = jdbcRead;
+            this.jpaRead = jpaRead;
+        }
+
+        @GetMapping("/jdbc")
+        Long jdbc() {
+            return jdbcRead.get();
+        }
+
+        @GetMapping("/jpa")
+        Long jpa() {
+            return jpaRead.get();
+        }
+    }
+
+    private static DataSource migratedDatabase(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        return dataSource;
+    }
+
+    // a bare JPA setup over the entities, without the application's caches and statistics
+    private static LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.example.carins.model");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        // the second-level cache is left off: its JCache manager is shared with the application and closed on destroy
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy",
+                "hibernate.cache.use_second_level_cache", "false",
+                "hibernate.cache.region.factory_class", "none"));
+        factory.afterPropertiesSet();
+        return factory;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.PolicyPeriod;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the migration indexes: the repository query shapes must be answered by index lookups
+ */
+@SpringBootTest
+class MigrationIndexTests {
+
+    @Autowired
+    PolicyPeriodRepository policyPeriodRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        assertPlanUses("select id from car where vin = 'VIN12345'", "UX_CAR_VIN");
+        assertPlanUses("select count(*) from insurancepolicy where car_id = 1 and start_date <= DATE '2025-06-01' " +
+                "and (end_date is null or end_date >= DATE '2025-06-01')", "IX_INSURANCEPOLICY_CAR_DATES");
+        assertPlanUses("select id, car_id, end_date from insurancepolicy where end_date < DATE '2025-06-01' " +
+                "and (end_date > DATE '2024-01-01' or (end_date = DATE '2024-01-01' and id > 0)) order by end_date, id",
+                "IX_INSURANCEPOLICY_END_DATE");
+        assertPlanUses("select id from claim where car_id = 1 order by claim_date", "IX_CLAIM_CAR_DATE");
+    }
+
+    @Test
+    void duplicateVinIsRejectedByDatabase() {
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "insert into car (vin, make, model, year_of_manufacture, owner_id) values ('VIN12345', 'Dacia', 'Logan', 2018, 1)"));
+    }
+
+    @Test
+    void coverageQueryGroupsPoliciesByCar() {
+        List<PolicyPeriod> periods = policyPeriodRepository.findPeriodsForCars(List.of(1L, 5L, 999L));
+
+        assertTrue(periods.stream().filter(p -> p.carId() == 1L).count() >= 2);
+        assertEquals(1, periods.stream().filter(p -> p.carId() == 5L).count());
+        assertTrue(periods.stream().noneMatch(p -> p.carId() == 999L));
+
+        // thousands of ids are still one statement, looked up in the primary key
+        List<Long> many = LongStream.rangeClosed(1, 5000).boxed().toList();
+        assertEquals(periods, policyPeriodRepository.findPeriodsForCars(many).stream().filter(p -> p.carId() == 1L || p.carId() == 5L).toList());
+        assertPlanUses("select c.id from car c where c.id = any(array[1, 5])", "PRIMARY_KEY");
+    }
+
+    private void assertPlanUses(String sql, String index) {
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class);
+        assertTrue(plan.contains(index), () -> "Expected " + index + " in plan:\n" + plan);
+    }
+}
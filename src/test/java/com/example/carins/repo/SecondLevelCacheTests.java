@@ -0,0 +1,66 @@
+package com.example.carins.repo;
+
+import com.example.carins.service.InsurancePolicyService;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the second-level and query cache
+ */
+@SpringBootTest
+class SecondLevelCacheTests {
+
+    @Autowired
+    InsurancePolicyService insurancePolicyService;
+
+    @Autowired
+    InsurancePolicyRepository insurancePolicyRepository;
+
+    @Autowired
+    CarRepository carRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void repeatedCarLookupsAreServedFromSecondLevelCache() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        carRepository.findById(2L);
+        long hits = statistics.getSecondLevelCacheHitCount();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals("VIN67890", carRepository.findById(2L).orElseThrow().getVin());
+
+        assertTrue(statistics.getSecondLevelCacheHitCount() > hits);
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void cachedPoliciesByCarAreInvalidatedOnWrite() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        int before = insurancePolicyRepository.findByCarId(4L).size();
+        long queryHits = statistics.getQueryCacheHitCount();
+
+        assertEquals(before, insurancePolicyRepository.findByCarId(4L).size());
+        assertEquals(queryHits + 1, statistics.getQueryCacheHitCount());
+
+        insurancePolicyService.createInsurance(4L,
+                new InsurancePolicyDto("Groupama", LocalDate.parse("2032-01-01"), LocalDate.parse("2032-12-31")));
+
+        assertEquals(before + 1, insurancePolicyRepository.findByCarId(4L).size());
+        assertTrue(meterRegistry.get("carins.cache.hit.ratio").tag("region", "query-results").gauge().value() > 0);
+    }
+}
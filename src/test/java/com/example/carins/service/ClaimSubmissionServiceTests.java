@@ -0,0 +1,169 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.ClaimRepository;
+import com.example.carins.repo.ClaimSubmissionRepository;
+import com.example.carins.repo.SchedulerLeaseRepository;
+import com.example.carins.repo.projection.ClaimSubmission;
+import com.example.carins.web.CarController;
+import com.example.carins.web.ClaimController;
+import com.example.carins.web.dto.ClaimDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Validator;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for asynchronous claim registration
+ */
+@SpringBootTest
+class ClaimSubmissionServiceTests {
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    ClaimController claimController;
+
+    @Autowired
+    ClaimRepository claimRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    SchedulerLeaseRepository schedulerLeaseRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ClaimSubmissionService claimSubmissionService;
+
+    @Autowired
+    ClaimSubmissionRepository claimSubmissionRepository;
+
+    @Test
+    void asyncClaimsAreAcceptedAndStoredInTheBackground() throws Exception {
+        ClaimDto claimDto = new ClaimDto(2L, LocalDate.parse("2024-09-15"), "Hail dents", new BigDecimal("320.00"));
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(claimDto, "claimDto");
+        validator.validate(claimDto, bindingResult);
+
+        ResponseEntity<?> accepted = carController.submitClaim(2L, claimDto, bindingResult);
+        assertEquals(202, accepted.getStatusCode().value());
+        String trackingId = ((CarController.ClaimSubmissionResponse) accepted.getBody()).trackingId();
+        assertEquals("/api/claims/submissions/" + trackingId, accepted.getHeaders().getLocation().toString());
+        assertEquals(404, carController.submitClaim(999L, claimDto, bindingResult).getStatusCode().value());
+
+        // a submission the car check did not catch is rejected by the consumer, without holding up the others
+        String unknownCar = "00000000-0000-0000-0000-000000000999";
+        claimSubmissionRepository.insert(new ClaimSubmission(unknownCar, 999L, LocalDate.parse("2024-09-15"), "Hail",
+                new BigDecimal("10.00"), ClaimSubmissionRepository.PENDING, null, null, Instant.now(), null));
+
+        ClaimSubmission created = awaitProcessed(trackingId);
+        assertEquals(ClaimSubmissionRepository.CREATED, created.status());
+        assertTrue(claimRepository.findByCarId(2L).stream().anyMatch(claim -> claim.getId().equals(created.claimId())));
+        assertEquals(created, claimController.getSubmission(trackingId).getBody());
+
+        ClaimSubmission rejected = awaitProcessed(unknownCar);
+        assertEquals(ClaimSubmissionRepository.REJECTED, rejected.status());
+        assertEquals("Car with ID 999 not found", rejected.error());
+        assertEquals(404, claimController.getSubmission("no-such-submission").getStatusCode().value());
+    }
+
+    @Test
+    void aSubmissionLockedByOneConsumerIsNotStoredByAnother() throws Exception {
+        String trackingId = "00000000-0000-0000-0000-000000000101";
+        claimSubmissionRepository.insert(new ClaimSubmission(trackingId, 2L, LocalDate.parse("2024-10-01"), "Dent",
+                new BigDecimal("50.00"), ClaimSubmissionRepository.PENDING, null, null, Instant.now(), null));
+        CountDownLatch locked = new CountDownLatch(1);
+
+        // keep the scheduled consumer away from the submission while the test plays both consumers
+        assertTrue(schedulerLeaseRepository.tryAcquire("claim-submissions", "test-node", Duration.ofMinutes(1)));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // first consumer: locks the submission, stores it and commits a little later
+            Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    assertEquals(1, claimSubmissionRepository.lockPending(List.of(trackingId)).size());
+                } finally {
+                    locked.countDown();
+                }
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertArrayEquals(new boolean[]{true}, claimSubmissionRepository.markProcessed(
+                        List.of(new ClaimSubmissionRepository.Outcome(trackingId, 1L, null)), Instant.now()));
+            }));
+            // second consumer, past its lease with a stale PENDING read: waits for the lock, then finds nothing to do
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            List<ClaimSubmission> second = transactionTemplate.execute(status -> claimSubmissionRepository.lockPending(List.of(trackingId)));
+            first.get();
+            assertEquals(List.of(), second);
+        } finally {
+            schedulerLeaseRepository.release("claim-submissions", "test-node");
+        }
+        assertArrayEquals(new boolean[]{false}, claimSubmissionRepository.markProcessed(
+                List.of(new ClaimSubmissionRepository.Outcome(trackingId, 2L, null)), Instant.now()));
+        assertEquals(1L, claimSubmissionService.findSubmission(trackingId).orElseThrow().claimId());
+
+        String owner = "test-node";
+        assertTrue(schedulerLeaseRepository.tryAcquire("renew-test", owner, Duration.ofMinutes(1)));
+        assertTrue(schedulerLeaseRepository.renew("renew-test", owner, Duration.ofMinutes(1)));
+        assertFalse(schedulerLeaseRepository.renew("renew-test", "other-node", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void aSubmissionThatCannotBeStoredKeepsTheDatabaseError() throws Exception {
+        jdbcTemplate.update("insert into owner (name, email) values ('Irina Dinu', 'irina.dinu@example.com')");
+        Long ownerId = jdbcTemplate.queryForObject("select max(id) from owner", Long.class);
+        jdbcTemplate.update("insert into car (vin, make, model, year_of_manufacture, owner_id) values ('OVERFLOW001', 'Skoda', 'Fabia', 2019, ?)", ownerId);
+        Long carId = jdbcTemplate.queryForObject("select id from car where vin = 'OVERFLOW001'", Long.class);
+
+        // each amount fits a claim, but the two together overflow the car's monthly rollup total
+        String fits = "00000000-0000-0000-0000-000000000201";
+        String overflows = "00000000-0000-0000-0000-000000000202";
+        BigDecimal amount = new BigDecimal("600000000000000000000000000000000000.00");
+        for (String trackingId : List.of(fits, overflows)) {
+            claimSubmissionRepository.insert(new ClaimSubmission(trackingId, carId, LocalDate.parse("2019-01-10"), "Total loss",
+                    amount, ClaimSubmissionRepository.PENDING, null, null, Instant.now(), null));
+        }
+
+        assertEquals(ClaimSubmissionRepository.CREATED, awaitProcessed(fits).status());
+        ClaimSubmission rejected = awaitProcessed(overflows);
+        assertEquals(ClaimSubmissionRepository.REJECTED, rejected.status());
+        assertTrue(rejected.error().startsWith("Could not store claim: "), rejected.error());
+        assertFalse(rejected.error().contains("rollback-only"), rejected.error());
+    }
+
+    // the scheduled consumer may hold the lease, in which case it stores the submission instead
+    private ClaimSubmission awaitProcessed(String trackingId) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            claimSubmissionService.processPending();
+            ClaimSubmission submission = claimSubmissionService.findSubmission(trackingId).orElseThrow();
+            if (!submission.status().equals(ClaimSubmissionRepository.PENDING)) return submission;
+            Thread.sleep(50);
+        }
+        return fail("Submission " + trackingId + " was not processed");
+    }
+}
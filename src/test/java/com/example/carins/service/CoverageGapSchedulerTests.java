@@ -0,0 +1,71 @@
+package com.example.carins.service;
+
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.CoverageAnomaly;
+import com.example.carins.web.ReportController;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the coverage gap and overlap job
+ */
+@SpringBootTest
+class CoverageGapSchedulerTests {
+
+    @Autowired
+    InsurancePolicyService insurancePolicyService;
+
+    @Autowired
+    PolicyIntervalIndex policyIntervalIndex;
+
+    @Autowired
+    InsurancePolicyRepository insurancePolicyRepository;
+
+    @Autowired
+    CarRepository carRepository;
+
+    @Autowired
+    ReportController reportController;
+
+    @Autowired
+    CoverageGapScheduler coverageGapScheduler;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coverageJobFindsGapsAndOverlapsBetweenPolicies() {
+        // car 3 already has 2025-01-01..2025-09-30; the service refuses overlaps, so this one goes in directly
+        Long overlapping = insurancePolicyRepository.save(new InsurancePolicy(carRepository.findById(3L).orElseThrow(),
+                "Generali", LocalDate.parse("2025-09-01"), LocalDate.parse("2025-12-31"))).getId();
+        policyIntervalIndex.addPolicy(3L, LocalDate.parse("2025-09-01"), LocalDate.parse("2025-12-31"));
+        Long afterGap = insurancePolicyService.createInsurance(3L,
+                new InsurancePolicyDto("Generali", LocalDate.parse("2026-03-01"), LocalDate.parse("2026-12-31")));
+
+        assertTrue(coverageGapScheduler.detectAnomalies() >= 2);
+
+        List<CoverageAnomaly> anomalies = (List<CoverageAnomaly>) reportController.coverageAnomalies(3L, null, 0, 100).getBody();
+        assertEquals(2, anomalies.size());
+        CoverageAnomaly overlap = anomalies.stream().filter(a -> a.kind().equals(CoverageAnomaly.OVERLAP)).findFirst().orElseThrow();
+        assertEquals(LocalDate.parse("2025-09-01"), overlap.startDate());
+        assertEquals(LocalDate.parse("2025-09-30"), overlap.endDate());
+        assertEquals(overlapping, overlap.secondPolicyId());
+        CoverageAnomaly gap = anomalies.stream().filter(a -> a.kind().equals(CoverageAnomaly.GAP)).findFirst().orElseThrow();
+        assertEquals(LocalDate.parse("2026-01-01"), gap.startDate());
+        assertEquals(LocalDate.parse("2026-02-28"), gap.endDate());
+        assertEquals(overlapping, gap.firstPolicyId());
+        assertEquals(afterGap, gap.secondPolicyId());
+
+        // adjacent policies of car 1 (2024 and 2025) are neither a gap nor an overlap
+        List<CoverageAnomaly> car1Gaps = (List<CoverageAnomaly>) reportController.coverageAnomalies(1L, "GAP", 0, 100).getBody();
+        assertEquals(List.of(), car1Gaps);
+        assertEquals(400, reportController.coverageAnomalies(null, "HOLE", 0, 100).getStatusCode().value());
+    }
+}
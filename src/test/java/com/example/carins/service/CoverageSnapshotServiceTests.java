@@ -0,0 +1,105 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CoverageSnapshotRepository;
+import com.example.carins.web.ReportController;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the coverage snapshots
+ */
+@SpringBootTest
+class CoverageSnapshotServiceTests {
+
+    @Autowired
+    InsurancePolicyService insurancePolicyService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ReportController reportController;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    CoverageSnapshotService coverageSnapshotService;
+
+    @Autowired
+    CoverageSnapshotRepository coverageSnapshotRepository;
+
+    @Test
+    void coverageSnapshotsCountPageAndDiffInsuredCars() {
+        insurancePolicyService.createInsurance(4L, new InsurancePolicyDto("Allianz", LocalDate.parse("2038-01-01"), LocalDate.parse("2038-12-31")));
+        insurancePolicyService.createInsurance(2L, new InsurancePolicyDto("Allianz", LocalDate.parse("2038-01-01"), LocalDate.parse("2039-12-31")));
+
+        ResponseEntity<?> count = reportController.coverageSnapshot("2038-06-01");
+        ReportController.CoverageSnapshotResponse snapshot = (ReportController.CoverageSnapshotResponse) count.getBody();
+        assertEquals("2038-06-01", snapshot.date());
+        assertTrue(snapshot.insuredCars() >= 2);
+        assertTrue(coverageSnapshotRepository.find(LocalDate.parse("2038-06-01")).isPresent());
+
+        ResponseEntity<?> firstPage = reportController.coverageSnapshotCars("2038-06-01", 0, 1);
+        assertEquals(List.of(2L), firstPage.getBody());
+        assertEquals("2", firstPage.getHeaders().getFirst("X-Next-After"));
+        assertEquals(4L, ((List<?>) reportController.coverageSnapshotCars("2038-06-01", 2, 1).getBody()).get(0));
+
+        ReportController.CoverageDiffResponse diff =
+                (ReportController.CoverageDiffResponse) reportController.coverageSnapshotDiff("2038-06-01", "2039-06-01", 0, 100).getBody();
+        assertTrue(diff.carIds().contains(4L));
+        assertFalse(diff.carIds().contains(2L));
+        assertEquals(diff.carIds().size(), diff.newlyUninsured());
+
+        // a policy created later drops the snapshots of the days it covers, here car 4 is insured again in 2039
+        assertFalse(coverageSnapshotService.snapshot(LocalDate.parse("2039-06-01")).insuredCars().contains(4L));
+        insurancePolicyService.createInsurance(4L, new InsurancePolicyDto("Allianz", LocalDate.parse("2039-01-01"), LocalDate.parse("2039-12-31")));
+        assertTrue(coverageSnapshotService.snapshot(LocalDate.parse("2039-06-01")).insuredCars().contains(4L));
+        diff = (ReportController.CoverageDiffResponse) reportController.coverageSnapshotDiff("2038-06-01", "2039-06-01", 0, 100).getBody();
+        assertFalse(diff.carIds().contains(4L));
+
+        assertEquals(400, reportController.coverageSnapshot("2038-02-30").getStatusCode().value());
+        assertEquals(400, reportController.coverageSnapshotCars("2038-06-01", 0, 0).getStatusCode().value());
+    }
+
+    @Test
+    void aSnapshotScannedBeforeAnotherNodesInvalidationIsNotStored() throws Exception {
+        LocalDate date = LocalDate.parse("2047-06-01");
+        List<Future<CoverageSnapshot>> built = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // another node writes a policy and invalidates in one transaction, committed while this node builds the date
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("insert into car (vin, make, model, year_of_manufacture, owner_id) values ('SNAPRACE001', 'Opel', 'Astra', 2020, 1)");
+                Long carId = jdbcTemplate.queryForObject("select id from car where vin = 'SNAPRACE001'", Long.class);
+                jdbcTemplate.update("insert into insurancepolicy (car_id, provider, start_date, end_date) values (?, 'Groupama', '2047-01-01', '2047-12-31')", carId);
+                jdbcTemplate.update("update coverage_snapshot_generation set generation = generation + 1 where id = 1");
+                built.add(executor.submit(() -> coverageSnapshotService.snapshot(date)));
+                try {
+                    Thread.sleep(300); // the build scans without the policy, then waits for the generation row
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        Long carId = jdbcTemplate.queryForObject("select id from car where vin = 'SNAPRACE001'", Long.class);
+
+        // the first scan missed the policy; it was not stored, and the rescan that was stored includes the car
+        assertTrue(built.get(0).get().insuredCars().contains(carId));
+        CarIdSet stored = CarIdSet.valueOf(coverageSnapshotRepository.find(date).orElseThrow().bitmap());
+        assertTrue(stored.contains(carId));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.carins.service;
+
+import com.example.carins.config.NotificationProperties;
+import com.example.carins.repo.NotificationOutboxRepository;
+import com.example.carins.repo.SchedulerLeaseRepository;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the upcoming-expiry notification pipeline
+ */
+@SpringBootTest
+class ExpiryNotificationSchedulerTests {
+
+    @Autowired
+    InsurancePolicyService insurancePolicyService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    NotificationOutboxRepository notificationOutboxRepository;
+
+    @Autowired
+    NotificationProperties notificationProperties;
+
+    @Autowired
+    SchedulerLeaseRepository schedulerLeaseRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void expiryNoticesAreQueuedOncePerPolicyAndGroupedPerOwner() {
+        // cars of their own for owners 1 and 2, so the seeded cars keep their coverage history
+        jdbcTemplate.update("insert into car (vin, make, model, year_of_manufacture, owner_id) values ('NOTICE00001', 'Seat', 'Arona', 2021, 1)");
+        jdbcTemplate.update("insert into car (vin, make, model, year_of_manufacture, owner_id) values ('NOTICE00002', 'Seat', 'Ibiza', 2022, 2)");
+        Long firstCar = jdbcTemplate.queryForObject("select id from car where vin = 'NOTICE00001'", Long.class);
+        Long secondCar = jdbcTemplate.queryForObject("select id from car where vin = 'NOTICE00002'", Long.class);
+        insurancePolicyService.createInsurance(firstCar, new InsurancePolicyDto("Allianz", LocalDate.parse("2031-01-01"), LocalDate.parse("2031-06-10")));
+        insurancePolicyService.createInsurance(secondCar, new InsurancePolicyDto("Allianz", LocalDate.parse("2031-01-01"), LocalDate.parse("2031-06-20")));
+
+        List<List<OwnerExpiryNotice>> batches = new ArrayList<>();
+        boolean[] channelDown = {true};
+        ExpiryNotificationScheduler notifications = new ExpiryNotificationScheduler(notificationOutboxRepository, schedulerLeaseRepository, batch -> {
+            if (channelDown[0]) throw new NotificationDeliveryException("gateway unavailable");
+            batches.add(batch);
+        }, notificationProperties, meterRegistry);
+
+        assertEquals(2, notifications.enqueueUpcomingExpiries(LocalDate.parse("2031-06-01")));
+        assertEquals(0, notifications.enqueueUpcomingExpiries(LocalDate.parse("2031-06-01")));
+
+        // a failed batch is kept and only retried after the backoff
+        Instant now = Instant.now();
+        assertEquals(0, notifications.dispatchPending(now));
+        assertEquals(0, notifications.dispatchPending(now));
+
+        channelDown[0] = false;
+        Instant retry = now.plus(notificationProperties.retryBackoff()).plusSeconds(1);
+        // nothing is sent while another node holds the dispatch lease
+        assertTrue(schedulerLeaseRepository.tryAcquire("expiry-notifications", "other-node", Duration.ofMinutes(1)));
+        assertEquals(0, notifications.dispatchPending(retry));
+        assertTrue(batches.isEmpty());
+        schedulerLeaseRepository.release("expiry-notifications", "other-node");
+
+        assertEquals(2, notifications.dispatchPending(retry));
+        assertEquals(1, batches.size());
+        assertEquals(List.of(1L, 2L), batches.get(0).stream().map(OwnerExpiryNotice::ownerId).toList());
+        assertEquals(LocalDate.parse("2031-06-20"), batches.get(0).get(1).policies().get(0).endDate());
+
+        assertEquals(0, notifications.dispatchPending(now.plusSeconds(3600)));
+    }
+
+    @Test
+    void concurrentEnqueuesQueueEachNoticeOnce() throws Exception {
+        jdbcTemplate.update("insert into car (vin, make, model, year_of_manufacture, owner_id) values ('NOTICE00003', 'Seat', 'Leon', 2021, 1)");
+        Long carId = jdbcTemplate.queryForObject("select id from car where vin = 'NOTICE00003'", Long.class);
+        Long policyId = insurancePolicyService.createInsurance(carId,
+                new InsurancePolicyDto("Allianz", LocalDate.parse("2040-01-01"), LocalDate.parse("2040-06-10")));
+        LocalDate today = LocalDate.parse("2040-06-01");
+        ExpiryNotificationScheduler otherNode = new ExpiryNotificationScheduler(notificationOutboxRepository, schedulerLeaseRepository,
+                batch -> {}, notificationProperties, meterRegistry);
+        CountDownLatch inserted = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // the first node's insert is not committed yet when the second node runs the same one
+            Future<Integer> first = executor.submit(() -> transactionTemplate.execute(status -> {
+                try {
+                    return notificationOutboxRepository.enqueueExpiringBetween(today, today.plusDays(notificationProperties.horizonDays()), Instant.now());
+                } finally {
+                    inserted.countDown();
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }));
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            int second = otherNode.enqueueUpcomingExpiries(today);
+
+            assertEquals(1, first.get() + second);
+        } finally {
+            // not due for the dispatch tests
+            jdbcTemplate.update("delete from notification_outbox where policy_id = ?", policyId);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.carins.service;
+
+import com.example.carins.model.JobCheckpoint;
+import com.example.carins.repo.FleetImportRepository;
+import com.example.carins.repo.JobCheckpointRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.Validator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the fleet import
+ */
+@SpringBootTest
+class FleetImportServiceTests {
+
+    @Autowired
+    CarService service;
+
+    @Autowired
+    PolicyIntervalIndex policyIntervalIndex;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    FleetImportService fleetImportService;
+
+    @Autowired
+    FleetImportRepository fleetImportRepository;
+
+    @Autowired
+    VinIndex vinIndex;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    jakarta.validation.Validator beanValidator;
+
+    @Autowired
+    CoverageSnapshotService coverageSnapshotService;
+
+    @Test
+    void fleetImportStoresCarsOwnersAndPoliciesFromCsv() throws Exception {
+        Path file = Files.createTempFile("fleet", ".csv");
+        Files.writeString(file, String.join("\n",
+                "vin,make,model,yearOfManufacture,ownerName,ownerEmail,provider,startDate,endDate",
+                "IMPVIN00001,Skoda,Octavia,2020,Maria Dobre,maria.dobre@example.com,Allianz,2026-01-01,2026-12-31",
+                "IMPVIN00001,Skoda,Octavia,2020,Maria Dobre,maria.dobre@example.com,,,",
+                "\"IMPVIN00002\",\"Skoda\",\"Octavia, Combi\",2021,Maria Dobre,maria.dobre@example.com,,,\r",
+                "VIN12345,Dacia,Logan,2018,Ana Pop,ana.pop@example.com,,,",
+                "IMPVIN00003,Ford,Focus,new,Ion Rusu,ion.rusu@example.com,,,",
+                "",
+                "IMPVIN00004,Ford,Focus,2019,Ion Rusu,ion.rusu@example.com,Groupama,2026-06-01,2026-01-01",
+                "IMPVIN00005,Ford,Focus,2019,Ion Rusu,ion.rusu@example.com,Groupama,2026-01-01,2026-12-31"));
+
+        // two-row chunks and a window a little longer than a line, so rows cross chunks and windows
+        FleetImportService importer = new FleetImportService(fleetImportRepository, jobCheckpointRepository, vinIndex,
+                policyIntervalIndex, coverageSnapshotService, transactionTemplate, eventPublisher,
+                entityManagerFactory, beanValidator, objectMapper, 2, 2, DataSize.ofBytes(128), meterRegistry);
+        FleetImportService.Result result = importer.importFile(file);
+
+        assertEquals(7, result.rows());
+        assertEquals(3, result.imported());
+        assertEquals(1, result.skipped());
+        assertEquals(3, result.rejected());
+        assertEquals(2, result.policies());
+        assertEquals(List.of("line 3: VIN IMPVIN00001 appears more than once",
+                "line 6: yearOfManufacture has an invalid value: new",
+                "line 8: A policy needs a start date and an end date, the start not after the end"), result.rejections());
+
+        Long first = service.findCarIdByVin("IMPVIN00001").orElseThrow();
+        Long second = service.findCarIdByVin("IMPVIN00002").orElseThrow();
+        assertEquals("Octavia, Combi", service.findCar(second).orElseThrow().model());
+        assertEquals(2, jdbcTemplate.queryForObject("select count(distinct owner_id) from car where vin like 'IMPVIN%'", Integer.class));
+        assertTrue(service.isInsuranceValid(first, LocalDate.parse("2026-06-01")));
+        assertFalse(service.isInsuranceValid(second, LocalDate.parse("2026-06-01")));
+        assertTrue(service.findCarIdByVin("IMPVIN00003").isEmpty());
+
+        // the whole file is behind the checkpoint now
+        assertEquals(0, importer.importFile(file).rows());
+    }
+
+    @Test
+    void fleetImportResumesNdjsonAfterTheCheckpoint() throws Exception {
+        Path file = Files.createTempFile("fleet", ".ndjson");
+        Files.writeString(file, String.join("\n",
+                "{\"vin\":\"RESVIN00001\",\"make\":\"Opel\",\"yearOfManufacture\":2017,\"ownerName\":\"Radu Stan\",\"ownerEmail\":\"radu.stan@example.com\"}",
+                "{\"vin\":\"RESVIN00002\",\"make\":\"Opel\",\"yearOfManufacture\":2017,\"ownerName\":\"Radu Stan\",\"ownerEmail\":\"radu.stan@example.com\"}",
+                "{\"vin\":\"RESVIN00003\",\"make\":\"Opel\",\"yearOfManufacture\":2018,\"ownerName\":\"Radu Stan\",\"ownerEmail\":\"radu.stan@example.com\",",
+                "{\"vin\":\"RESVIN00004\",\"make\":\"Opel\",\"yearOfManufacture\":2019,\"ownerName\":\"Radu Stan\",\"ownerEmail\":\"radu.stan@example.com\",\"provider\":\"Allianz\",\"startDate\":\"2026-01-01\",\"endDate\":\"2026-12-31\"}",
+                ""));
+        // as if an earlier run had committed the first two lines and stopped
+        String checkpointName = "fleet-import/" + sha256(file);
+        jobCheckpointRepository.save(new JobCheckpoint(checkpointName, null, 2L));
+
+        FleetImportService.Result result = fleetImportService.importFile(file);
+
+        assertEquals(2, result.resumedAfterLine());
+        assertEquals(2, result.rows());
+        assertEquals(1, result.imported());
+        assertEquals(1, result.rejected());
+        assertTrue(result.rejections().get(0).startsWith("line 3: Not a valid row"));
+        assertTrue(result.rowsPerSecond() > 0);
+        assertTrue(service.findCarIdByVin("RESVIN00001").isEmpty());
+        Long imported = service.findCarIdByVin("RESVIN00004").orElseThrow();
+        assertTrue(service.isInsuranceValid(imported, LocalDate.parse("2026-12-31")));
+        assertEquals(4L, jobCheckpointRepository.findById(checkpointName).orElseThrow().getLastId());
+    }
+
+    @Test
+    void fleetImportDoesNotResumeACorrectedFileOfTheSameSize() throws Exception {
+        Path file = Files.createTempFile("fleet", ".csv");
+        String header = "vin,make,model,yearOfManufacture,ownerName,ownerEmail,provider,startDate,endDate\n";
+        Files.writeString(file, header
+                + "FIXVIN0000X,Skoda,Fabia,2019,Ana Pop,ana.pop@example.com,,,\n"
+                + "FIXVIN00002,Skoda,Fabia,2019,Ana Pop,ana.pop@example.com,,,\n");
+        long size = Files.size(file);
+        assertEquals(2, fleetImportService.importFile(file).imported());
+
+        // the first VIN was a typo; the corrected file has the same name and size
+        Files.writeString(file, header
+                + "FIXVIN00001,Skoda,Fabia,2019,Ana Pop,ana.pop@example.com,,,\n"
+                + "FIXVIN00002,Skoda,Fabia,2019,Ana Pop,ana.pop@example.com,,,\n");
+        assertEquals(size, Files.size(file));
+
+        FleetImportService.Result result = fleetImportService.importFile(file);
+
+        assertEquals(0, result.resumedAfterLine());
+        assertEquals(1, result.imported());
+        assertEquals(1, result.skipped());
+        assertTrue(service.findCarIdByVin("FIXVIN00001").isPresent());
+    }
+
+    private static String sha256(Path file) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file)));
+    }
+
+    @Test
+    void fleetImportRejectsNonAsciiVins() throws Exception {
+        Path file = Files.createTempFile("fleet", ".csv");
+        Files.writeString(file, String.join("\n",
+                "vin,make,model,yearOfManufacture,ownerName,ownerEmail,provider,startDate,endDate",
+                "ÅSCVIN00001,Seat,Ibiza,2020,Dan Marin,dan.marin@example.com,,,",
+                "ASCVIN00002,Seat,Ibiza,2020,Dan Marin,dan.marin@example.com,,,"));
+
+        FleetImportService.Result result = fleetImportService.importFile(file);
+
+        assertEquals(1, result.imported());
+        assertEquals(List.of("line 2: VIN must contain only ASCII characters"), result.rejections());
+        assertTrue(service.findCarIdByVin("ASCVIN00002").isPresent());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.web.CarController;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for idempotent and conflict-free policy creation
+ */
+@SpringBootTest
+class PolicyCreationTests {
+
+    @Autowired
+    InsurancePolicyService insurancePolicyService;
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    InsurancePolicyRepository insurancePolicyRepository;
+
+    @Test
+    void repeatedIdempotencyKeyReturnsTheFirstPolicy() {
+        InsurancePolicyDto dto = new InsurancePolicyDto("Asirom", LocalDate.parse("2035-01-01"), LocalDate.parse("2035-12-31"));
+        long first = insurancePolicyService.createInsurance(2L, dto, "renewal-2035-car-2");
+        long again = insurancePolicyService.createInsurance(2L, dto, "renewal-2035-car-2");
+
+        assertEquals(first, again);
+        assertEquals(1, insurancePolicyRepository.findByCarId(2L).stream()
+                .filter(p -> p.getStartDate().equals(LocalDate.parse("2035-01-01"))).count());
+
+        InsurancePolicyDto other = new InsurancePolicyDto("Asirom", LocalDate.parse("2036-01-01"), LocalDate.parse("2036-12-31"));
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(other, "insurancePolicyDto");
+        assertEquals(400, carController.createInsurance(2L, "renewal-2035-car-2", other, bindingResult).getStatusCode().value());
+        assertEquals(400, carController.createInsurance(2L, "x".repeat(129), other, bindingResult).getStatusCode().value());
+    }
+
+    @Test
+    void overlappingPolicyIsRejectedWithConflict() {
+        // car 1 has 2025-01-01..2026-01-01
+        InsurancePolicyDto dto = new InsurancePolicyDto("Euroins", LocalDate.parse("2025-12-01"), LocalDate.parse("2026-05-31"));
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(dto, "insurancePolicyDto");
+
+        ResponseEntity<?> response = carController.createInsurance(1L, null, dto, bindingResult);
+
+        assertEquals(409, response.getStatusCode().value());
+        assertThrows(PolicyOverlapException.class, () -> insurancePolicyService.createInsurance(1L, dto));
+    }
+
+    @Test
+    void concurrentOverlappingPoliciesForOneCarCreateOnlyOne() throws Exception {
+        int writers = 8;
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            String provider = "Provider " + i;
+            tasks.add(() -> insurancePolicyService.createInsurance(4L,
+                    new InsurancePolicyDto(provider, LocalDate.parse("2034-01-01"), LocalDate.parse("2034-12-31"))));
+        }
+
+        int created = 0;
+        int rejected = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                try {
+                    result.get();
+                    created++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(PolicyOverlapException.class, e.getCause());
+                    rejected++;
+                }
+            }
+        }
+
+        assertEquals(1, created);
+        assertEquals(writers - 1, rejected);
+        assertEquals(1, insurancePolicyRepository.findByCarId(4L).stream()
+                .filter(p -> p.getStartDate().getYear() == 2034).count());
+    }
+
+    @Test
+    void concurrentRetriesWithOneIdempotencyKeyShareOnePolicy() throws Exception {
+        InsurancePolicyDto dto = new InsurancePolicyDto("Uniqa", LocalDate.parse("2037-01-01"), LocalDate.parse("2037-12-31"));
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> insurancePolicyService.createInsurance(2L, dto, "retry-2037-car-2"));
+        }
+
+        Set<Long> ids = new HashSet<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                ids.add(result.get());
+            }
+        }
+
+        assertEquals(1, ids.size());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.carins.service;
+
+import com.example.carins.model.JobCheckpoint;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.JobCheckpointRepository;
+import com.example.carins.repo.SchedulerLeaseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for sharded, lease-guarded expiry processing
+ */
+@SpringBootTest
+class PolicyExpirySchedulerTests {
+
+    @Autowired
+    PolicyExpiryScheduler policyExpiryScheduler;
+
+    @Autowired
+    InsurancePolicyRepository insurancePolicyRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    SchedulerLeaseRepository schedulerLeaseRepository;
+
+    @Autowired
+    JobCheckpointRepository jobCheckpointRepository;
+
+    @Test
+    void expiryShardsAreSplitBetweenNodesWithoutRepeatingWork() {
+        policyExpiryScheduler.resetCheckpoint();
+        long expired = insurancePolicyRepository.countExpiredAfter(LocalDate.now(), LocalDate.of(1, 1, 1), 0L, 1, 0);
+        PolicyExpiryScheduler otherNode = new PolicyExpiryScheduler(insurancePolicyRepository, jobCheckpointRepository,
+                schedulerLeaseRepository, 500, 16, Duration.ofMinutes(10), meterRegistry);
+
+        // a third node is busy with car 2's shard
+        String carTwoShard = "policy-expiry/2-of-16";
+        assertTrue(schedulerLeaseRepository.tryAcquire(carTwoShard, "busy-node", Duration.ofMinutes(10)));
+        assertFalse(schedulerLeaseRepository.tryAcquire(carTwoShard, "other", Duration.ofMinutes(10)));
+
+        int first = policyExpiryScheduler.processExpiredPolicies();
+        assertEquals(0, otherNode.processExpiredPolicies());
+
+        schedulerLeaseRepository.release(carTwoShard, "busy-node");
+        int second = otherNode.processExpiredPolicies();
+
+        assertTrue(second > 0);
+        assertEquals(expired, first + second);
+        assertEquals(0, policyExpiryScheduler.processExpiredPolicies());
+    }
+
+    @Test
+    void expiryShardStopsWhenItsLeaseIsLost() {
+        policyExpiryScheduler.resetCheckpoint();
+        long expired = insurancePolicyRepository.countExpiredAfter(LocalDate.now(), LocalDate.of(1, 1, 1), 0L, 1, 0);
+        assertTrue(expired > 1);
+        // a zero lease is gone by the time the second chunk would start
+        PolicyExpiryScheduler stalling = new PolicyExpiryScheduler(insurancePolicyRepository, jobCheckpointRepository,
+                schedulerLeaseRepository, 1, 1, Duration.ZERO, meterRegistry);
+        PolicyExpiryScheduler healthy = new PolicyExpiryScheduler(insurancePolicyRepository, jobCheckpointRepository,
+                schedulerLeaseRepository, 1, 1, Duration.ofMinutes(10), meterRegistry);
+
+        assertEquals(1, stalling.processExpiredPolicies());
+        assertEquals(expired - 1, healthy.processExpiredPolicies());
+        policyExpiryScheduler.resetCheckpoint();
+    }
+
+    @Test
+    void staleJobCheckpointIsNotSaved() {
+        jobCheckpointRepository.save(new JobCheckpoint("stale-checkpoint-test", LocalDate.of(2020, 1, 1), 1L));
+        JobCheckpoint holder = jobCheckpointRepository.findById("stale-checkpoint-test").orElseThrow();
+        JobCheckpoint stalled = jobCheckpointRepository.findById("stale-checkpoint-test").orElseThrow();
+
+        holder.advanceTo(LocalDate.of(2021, 1, 1), 5L);
+        jobCheckpointRepository.save(holder);
+        stalled.advanceTo(LocalDate.of(2020, 6, 1), 2L);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> jobCheckpointRepository.save(stalled));
+        assertEquals(LocalDate.of(2021, 1, 1), jobCheckpointRepository.findById("stale-checkpoint-test").orElseThrow().getLastDate());
+        jobCheckpointRepository.deleteById("stale-checkpoint-test");
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory policy interval index
+ */
+@SpringBootTest
+class PolicyIntervalIndexTests {
+
+    @Autowired
+    CarService service;
+
+    @Autowired
+    InsurancePolicyService insurancePolicyService;
+
+    @Autowired
+    PolicyIntervalIndex policyIntervalIndex;
+
+    @Autowired
+    InsurancePolicyRepository insurancePolicyRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void intervalIndexAgreesWithRepository() {
+        assertTrue(policyIntervalIndex.isReady());
+
+        String[] dates = {"2023-12-31", "2024-01-01", "2024-12-31", "2025-01-01", "2025-09-30", "2025-10-01", "2026-01-02"};
+        for (long carId = 1; carId <= 5; carId++) {
+            for (String date : dates) {
+                LocalDate d = LocalDate.parse(date);
+                assertEquals(insurancePolicyRepository.existsActiveOnDate(carId, d), policyIntervalIndex.isCovered(carId, d),
+                        "car " + carId + " on " + date);
+            }
+        }
+        assertFalse(policyIntervalIndex.containsCar(999L));
+    }
+
+    @Test
+    void intervalIndexFollowsCreatedPolicies() {
+        InsurancePolicyDto dto = new InsurancePolicyDto("Omniasig", LocalDate.parse("2030-01-01"), LocalDate.parse("2030-12-31"));
+        insurancePolicyService.createInsurance(4L, dto);
+
+        assertTrue(service.isInsuranceValid(4L, LocalDate.parse("2030-06-01")));
+        assertFalse(service.isInsuranceValid(4L, LocalDate.parse("2031-01-01")));
+    }
+
+    @Test
+    void intervalIndexRefreshPicksUpCarsAndPoliciesWrittenElsewhere() {
+        // written without events, as another node would
+        jdbcTemplate.update("insert into owner (name, email) values ('Radu Stan', 'radu.stan@example.com')");
+        Long ownerId = jdbcTemplate.queryForObject("select max(id) from owner", Long.class);
+        jdbcTemplate.update("insert into car (vin, make, model, year_of_manufacture, owner_id) values ('REFRESH0001', 'Skoda', 'Octavia', 2020, ?)", ownerId);
+        Long carId = jdbcTemplate.queryForObject("select id from car where vin = 'REFRESH0001'", Long.class);
+        jdbcTemplate.update("insert into insurancepolicy (car_id, provider, start_date, end_date) values (4, 'Allianz', DATE '2041-01-01', DATE '2041-12-31')");
+        assertFalse(policyIntervalIndex.containsCar(carId));
+        assertFalse(policyIntervalIndex.isCovered(4L, LocalDate.parse("2041-06-01")));
+
+        policyIntervalIndex.refresh();
+        assertTrue(policyIntervalIndex.containsCar(carId));
+        assertTrue(policyIntervalIndex.isCovered(4L, LocalDate.parse("2041-06-01")));
+    }
+
+    @Test
+    void intervalIndexKeepsPoliciesAddedDuringARebuild() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> rebuilding = executor.submit(() -> {
+                for (int i = 0; i < 20; i++) policyIntervalIndex.rebuild();
+            });
+            for (int year = 2042; year <= 2046; year++) {
+                LocalDate start = LocalDate.of(year, 1, 1);
+                LocalDate end = LocalDate.of(year, 12, 31);
+                jdbcTemplate.update("insert into insurancepolicy (car_id, provider, start_date, end_date) values (4, 'Allianz', ?, ?)", start, end);
+                policyIntervalIndex.addPolicy(4L, start, end); // what the commit listener does
+                Thread.sleep(5);
+            }
+            rebuilding.get();
+        }
+        for (int year = 2042; year <= 2046; year++) {
+            assertTrue(policyIntervalIndex.isCovered(4L, LocalDate.of(year, 6, 1)), "year " + year);
+        }
+    }
+
+    @Test
+    void coverageIntervalsMergeOverlappingAndAdjacentPeriods() {
+        CoverageIntervals coverage = CoverageIntervals.EMPTY
+                .with(LocalDate.parse("2024-01-01").toEpochDay(), LocalDate.parse("2024-06-30").toEpochDay())
+                .with(LocalDate.parse("2024-07-01").toEpochDay(), LocalDate.parse("2024-12-31").toEpochDay())
+                .with(LocalDate.parse("2024-03-01").toEpochDay(), LocalDate.parse("2024-04-01").toEpochDay())
+                .with(LocalDate.parse("2026-01-01").toEpochDay(), CoverageIntervals.endDay(null));
+
+        assertEquals(2, coverage.size());
+        assertTrue(coverage.covers(LocalDate.parse("2024-07-01")));
+        assertFalse(coverage.covers(LocalDate.parse("2025-06-01")));
+        assertTrue(coverage.covers(LocalDate.parse("2099-01-01")));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.carins.service;
+
+import com.example.carins.web.CarController;
+import com.example.carins.web.ReportController;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the read-only projection read path
+ */
+@SpringBootTest
+class ProjectionReadPathTests {
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ReportController reportController;
+
+    @Test
+    void readEndpointsMaterializeNoEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long loads = statistics.getEntityLoadCount();
+        long cacheHits = statistics.getSecondLevelCacheHitCount();
+
+        assertEquals(200, carController.getCars(0, 100, null, null, null, null, null).getStatusCode().value());
+        assertEquals(200, carController.getCarHistory(1L, null, 100, null).getStatusCode().value());
+        assertEquals(200, carController.isInsuranceValid(1L, "2024-06-01", null).getStatusCode().value());
+        assertEquals(200, reportController.claimTotalsByCar(null, null, null, 0, 100).getStatusCode().value());
+
+        assertEquals(loads, statistics.getEntityLoadCount());
+        assertEquals(cacheHits, statistics.getSecondLevelCacheHitCount());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.web.CarController;
+import com.example.carins.web.dto.CarDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the VIN index and the VIN endpoints
+ */
+@SpringBootTest
+class VinIndexTests {
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    CarRepository carRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void vinIndexFindsEveryCarAndStaysCompact() {
+        VinIndex index = new VinIndex(carRepository, transactionManager, new SimpleMeterRegistry());
+        int cars = 200_000;
+        for (int i = 0; i < cars; i++) {
+            index.put(String.format("WVWZZZ1KZ%08d", i), i + 1);
+        }
+
+        assertEquals(cars, index.size());
+        for (int i = 0; i < cars; i += 997) {
+            assertEquals(i + 1, index.find(String.format("WVWZZZ1KZ%08d", i)).orElseThrow());
+        }
+        assertTrue(index.find("WVWZZZ1KZ99999999").isEmpty());
+        assertTrue(index.find("WVWZZZ1KZ0000000ä").isEmpty());
+        assertTrue(index.memoryBytes() < cars * 48L, "bytes per car: " + index.memoryBytes() / cars);
+
+        index.put("WVWZZZ1KZ00000007", 42);
+        assertEquals(42, index.find("WVWZZZ1KZ00000007").orElseThrow());
+        assertEquals(cars, index.size());
+
+        index.rebuild();
+        assertEquals(carRepository.count(), index.size());
+        assertEquals(1, index.find("VIN12345").orElseThrow());
+    }
+
+    @Test
+    void carsAndValidityCanBeLookedUpByVin() {
+        ResponseEntity<?> car = carController.getCarByVin("VIN67890");
+        assertEquals(200, car.getStatusCode().value());
+        assertEquals(2L, ((CarDto) car.getBody()).id());
+        assertEquals(404, carController.getCarByVin("UNKNOWN-VIN").getStatusCode().value());
+
+        ResponseEntity<?> byVin = carController.isInsuranceValidByVin("VIN67890", "2025-06-01", null);
+        ResponseEntity<?> byId = carController.isInsuranceValid(2L, "2025-06-01", null);
+        assertEquals(byId.getBody(), byVin.getBody());
+        assertEquals(byId.getHeaders().getETag(), byVin.getHeaders().getETag());
+        assertEquals(404, carController.isInsuranceValidByVin("UNKNOWN-VIN", "2025-06-01", null).getStatusCode().value());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.carins.web;
+
+import com.example.carins.web.dto.HistoryEventDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the single-query, paginated car history
+ */
+@SpringBootTest
+class CarHistoryTests {
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Test
+    void carHistoryIsOrderedAndPaginated() {
+        ResponseEntity<?> full = carController.getCarHistory(1L, null, null, null);
+        List<HistoryEventDto> all = ((CarController.CarHistoryResponse) full.getBody()).events();
+        for (int i = 1; i < all.size(); i++) {
+            assertFalse(all.get(i).date().isBefore(all.get(i - 1).date()));
+        }
+
+        List<HistoryEventDto> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            ResponseEntity<?> response = carController.getCarHistory(1L, cursor, 2, null);
+            assertEquals(200, response.getStatusCode().value());
+            CarController.CarHistoryResponse page = (CarController.CarHistoryResponse) response.getBody();
+            assertTrue(page.events().size() <= 2);
+            paged.addAll(page.events());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(all, paged);
+    }
+
+    @Test
+    void carHistoryRejectsMalformedCursor() {
+        ResponseEntity<?> response = carController.getCarHistory(1L, "yesterday", 10, null);
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    void carHistoryStreamsNdjson() throws Exception {
+        MockMvc mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get("/api/cars/1/history").param("stream", "true"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        MvcResult streamed = mvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        List<String> lines = streamed.getResponse().getContentAsString(StandardCharsets.UTF_8).lines().toList();
+
+        List<HistoryEventDto> events = ((CarController.CarHistoryResponse) carController.getCarHistory(1L, null, null, null).getBody()).events();
+        assertEquals(events.size(), lines.size());
+        assertEquals(events.get(0), objectMapper.readValue(lines.get(0), HistoryEventDto.class));
+
+        mvc.perform(MockMvcRequestBuilders.get("/api/cars/999/history").param("stream", "true"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        MvcResult rejected = mvc.perform(MockMvcRequestBuilders.get("/api/cars/1/history").param("stream", "true").param("after", "yesterday"))
+                .andReturn();
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(rejected))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.startsWith("Invalid history request")));
+    }
+}
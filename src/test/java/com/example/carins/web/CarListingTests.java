@@ -0,0 +1,70 @@
+package com.example.carins.web;
+
+import com.example.carins.web.dto.CarDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the keyset-paginated and streamed car listing
+ */
+@SpringBootTest
+class CarListingTests {
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void carsArePagedByIdWithFilters() {
+        ResponseEntity<?> first = carController.getCars(0, 2, null, null, null, null, null);
+        assertEquals(200, first.getStatusCode().value());
+        List<CarDto> firstPage = (List<CarDto>) first.getBody();
+        assertEquals(List.of(1L, 2L), firstPage.stream().map(CarDto::id).toList());
+        assertEquals("2", first.getHeaders().getFirst("X-Next-After"));
+
+        ResponseEntity<?> second = carController.getCars(2, 2, null, null, null, null, null);
+        assertEquals(List.of(3L, 4L), ((List<CarDto>) second.getBody()).stream().map(CarDto::id).toList());
+
+        List<CarDto> golfs = (List<CarDto>) carController.getCars(0, null, "VW", "Golf", 2021, 2L, null).getBody();
+        assertEquals(4, golfs.size());
+        assertTrue(golfs.stream().allMatch(c -> "Bogdan Ionescu".equals(c.ownerName())));
+    }
+
+    @Test
+    void carsStreamAsNdjson() throws Exception {
+        MockMvc mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get("/api/cars").param("stream", "true").param("make", "Dacia"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        MvcResult streamed = mvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        List<String> lines = streamed.getResponse().getContentAsString(StandardCharsets.UTF_8).lines().toList();
+
+        assertEquals(1, lines.size());
+        assertEquals("VIN12345", objectMapper.readValue(lines.get(0), CarDto.class).vin());
+    }
+}
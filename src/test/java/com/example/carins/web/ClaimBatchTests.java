@@ -0,0 +1,47 @@
+package com.example.carins.web;
+
+import com.example.carins.web.dto.ClaimBatchResultDto;
+import com.example.carins.web.dto.ClaimDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for batched claim ingestion
+ */
+@SpringBootTest
+class ClaimBatchTests {
+
+    @Autowired
+    ClaimController claimController;
+
+    @Test
+    void claimBatchReportsPerItemOutcome() {
+        List<ClaimDto> claims = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            claims.add(new ClaimDto(2L, LocalDate.parse("2024-09-01"), "Hail damage " + i, new BigDecimal("99.90")));
+        }
+        claims.add(new ClaimDto(999L, LocalDate.parse("2024-09-01"), "Unknown car", new BigDecimal("10.00")));
+        claims.add(new ClaimDto(2L, LocalDate.parse("2024-09-01"), "", new BigDecimal("-1")));
+
+        ResponseEntity<?> response = claimController.registerClaims(claims);
+
+        assertEquals(200, response.getStatusCode().value());
+        ClaimController.ClaimBatchResponse body = (ClaimController.ClaimBatchResponse) response.getBody();
+        assertEquals(122, body.received());
+        assertEquals(120, body.created());
+        assertEquals(2, body.failed());
+        assertEquals(120, body.results().stream().map(ClaimBatchResultDto::claimId).filter(id -> id != null).distinct().count());
+        assertTrue(body.results().get(120).error().contains("Car with ID 999 not found"));
+        assertTrue(body.results().get(121).error().contains("Amount must be positive"));
+        assertTrue(body.results().get(121).error().contains("Description is required"));
+    }
+}
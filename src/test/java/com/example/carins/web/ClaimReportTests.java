@@ -0,0 +1,127 @@
+package com.example.carins.web;
+
+import com.example.carins.model.Claim;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.projection.CarClaimTotals;
+import com.example.carins.repo.projection.MonthlyClaimTotals;
+import com.example.carins.service.ClaimService;
+import com.example.carins.web.dto.ClaimDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the claim rollup and the report endpoints
+ */
+@SpringBootTest
+class ClaimReportTests {
+
+    @Autowired
+    ClaimController claimController;
+
+    @Autowired
+    CarRepository carRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ReportController reportController;
+
+    @Autowired
+    ClaimService claimService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claimReportsFollowNewAndChangedClaims() {
+        ResponseEntity<?> before = reportController.claimTotalsByMonth("2019-03", "2019-03", 5L, null);
+        assertEquals(List.of(), before.getBody());
+
+        claimService.createClaim(5L, new ClaimDto(5L, LocalDate.parse("2019-03-10"), "Dent", new BigDecimal("100.00")));
+        Claim second = claimService.saveClaim(new Claim(carRepository.findById(5L).orElseThrow(),
+                LocalDate.parse("2019-03-20"), "Bumper", new BigDecimal("50.50")));
+
+        List<MonthlyClaimTotals> march = (List<MonthlyClaimTotals>) reportController.claimTotalsByMonth("2019-03", "2019-03", 5L, null).getBody();
+        assertEquals(List.of(new MonthlyClaimTotals(YearMonth.of(2019, 3), 2, new BigDecimal("150.50"))), march);
+
+        // moving a claim to another month moves its contribution
+        second.setClaimDate(LocalDate.parse("2019-04-02"));
+        second.setAmount(new BigDecimal("70.00"));
+        claimService.saveClaim(second);
+
+        march = (List<MonthlyClaimTotals>) reportController.claimTotalsByMonth("2019-03", "2019-04", 5L, null).getBody();
+        assertEquals(List.of(new MonthlyClaimTotals(YearMonth.of(2019, 3), 1, new BigDecimal("100.00")),
+                new MonthlyClaimTotals(YearMonth.of(2019, 4), 1, new BigDecimal("70.00"))), march);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claimRollupMatchesRawClaimsAndPages() {
+        claimController.registerClaims(List.of(
+                new ClaimDto(3L, LocalDate.parse("2024-05-01"), "Flood", new BigDecimal("10.00")),
+                new ClaimDto(3L, LocalDate.parse("2024-05-02"), "Flood again", new BigDecimal("15.00"))));
+
+        List<CarClaimTotals> expected = jdbcTemplate.query(
+                "select c.car_id, car.vin, count(*), sum(c.amount) from claim c join car on car.id = c.car_id " +
+                "group by c.car_id, car.vin order by c.car_id",
+                (rs, row) -> new CarClaimTotals(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getBigDecimal(4)));
+        List<CarClaimTotals> all = (List<CarClaimTotals>) reportController.claimTotalsByCar(null, null, null, 0, 1000).getBody();
+        assertEquals(expected, all);
+
+        ResponseEntity<?> firstPage = reportController.claimTotalsByCar(null, null, null, 0, 1);
+        assertEquals(1, ((List<CarClaimTotals>) firstPage.getBody()).size());
+        assertEquals(String.valueOf(all.get(0).carId()), firstPage.getHeaders().getFirst("X-Next-After"));
+
+        assertEquals(400, reportController.claimTotalsByCar("2025-02", "2025-01", null, 0, 10).getStatusCode().value());
+        assertEquals(400, reportController.claimTotalsByOwner("2025-13", null, 0, 10).getStatusCode().value());
+    }
+
+    @Test
+    void concurrentFirstClaimsOfAMonthAreBothCounted() throws Exception {
+        jdbcTemplate.update("insert into car (vin, make, model, year_of_manufacture, owner_id) values ('ROLLUPRACE1', 'Seat', 'Leon', 2020, 1)");
+        Long carId = jdbcTemplate.queryForObject("select id from car where vin = 'ROLLUPRACE1'", Long.class);
+        ClaimDto claim = new ClaimDto(carId, LocalDate.parse("2024-07-10"), "Hail", new BigDecimal("40.00"));
+        CountDownLatch merged = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // first writer inserts the month's rollup row and commits a little later
+            Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    claimService.createClaim(carId, claim);
+                } finally {
+                    merged.countDown();
+                }
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            // second writer also finds no committed row for the month
+            assertTrue(merged.await(10, TimeUnit.SECONDS));
+            claimService.createClaim(carId, claim);
+            first.get();
+        }
+
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select claim_count from claim_rollup where car_id = ? and claim_month = DATE '2024-07-01'", Long.class, carId));
+    }
+}
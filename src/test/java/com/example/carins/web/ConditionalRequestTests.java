@@ -0,0 +1,129 @@
+package com.example.carins.web;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.CarRevisionRepository;
+import com.example.carins.service.CarRevisionRegistry;
+import com.example.carins.service.CarsWrittenEvent;
+import com.example.carins.service.ClaimService;
+import com.example.carins.service.PolicyIntervalIndex;
+import com.example.carins.web.dto.ClaimDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ETags and conditional requests
+ */
+@SpringBootTest
+class ConditionalRequestTests {
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    PolicyIntervalIndex policyIntervalIndex;
+
+    @Autowired
+    CarRepository carRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ClaimService claimService;
+
+    @Autowired
+    CarRevisionRegistry carRevisionRegistry;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void unchangedCarResourcesAreAnsweredWithNotModified() {
+        ResponseEntity<?> history = carController.getCarHistory(3L, null, 100, null);
+        String etag = history.getHeaders().getETag();
+        assertNotNull(etag);
+        assertEquals(304, carController.getCarHistory(3L, null, 100, etag).getStatusCode().value());
+        assertEquals(304, carController.getCarHistory(3L, null, 100, "\"other\", W/" + etag).getStatusCode().value());
+
+        ResponseEntity<?> validity = carController.isInsuranceValid(3L, "2060-01-01", null);
+        assertEquals(etag, validity.getHeaders().getETag());
+        assertEquals("no-cache", validity.getHeaders().getCacheControl());
+        assertEquals("max-age=86400", carController.isInsuranceValid(3L, "2020-01-01", null).getHeaders().getCacheControl());
+
+        // a claim moves the car's revision
+        claimService.createClaim(3L, new ClaimDto(3L, LocalDate.parse("2024-05-20"), "Cracked bumper", new BigDecimal("75.00")));
+        ResponseEntity<?> changed = carController.getCarHistory(3L, null, 100, etag);
+        assertEquals(200, changed.getStatusCode().value());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+
+        ResponseEntity<?> cars = carController.getCars(0, 10, null, null, null, null, null);
+        assertEquals(304, carController.getCars(0, 10, null, null, null, null, cars.getHeaders().getETag())
+                .getStatusCode().value());
+
+        // revisions are shared through the database: another node agrees on the tags and picks up this node's
+        // writes with its next refresh, and the other way round
+        CarRevisionRegistry otherNode = new CarRevisionRegistry(new CarRevisionRepository(dataSource), carRepository,
+                policyIntervalIndex, 1000);
+        otherNode.refresh();
+        String current = changed.getHeaders().getETag();
+        assertEquals(current, otherNode.carTag(3L));
+        transactionTemplate.executeWithoutResult(status -> otherNode.onCarsWritten(CarsWrittenEvent.of(3L)));
+        assertEquals(304, carController.getCarHistory(3L, null, 100, current).getStatusCode().value());
+        carRevisionRegistry.refresh();
+        assertEquals(200, carController.getCarHistory(3L, null, 100, current).getStatusCode().value());
+        assertEquals(otherNode.carTag(3L), carRevisionRegistry.carTag(3L));
+        // a bump is part of the write's transaction and goes away with it
+        String afterOtherNode = carRevisionRegistry.carTag(3L);
+        transactionTemplate.executeWithoutResult(status -> {
+            carRevisionRegistry.onCarsWritten(CarsWrittenEvent.of(3L));
+            status.setRollbackOnly();
+        });
+        assertEquals(afterOtherNode, carRevisionRegistry.carTag(3L));
+        otherNode.refresh();
+        assertEquals(afterOtherNode, otherNode.carTag(3L));
+
+        jdbcTemplate.update("insert into car (vin, make, model, year_of_manufacture, owner_id) values ('ETAGVIN0001', 'Seat', 'Leon', 2020, 1)");
+        policyIntervalIndex.refresh();
+        assertEquals(200, carController.getCars(0, 10, null, null, null, null, cars.getHeaders().getETag())
+                .getStatusCode().value());
+    }
+
+    @Test
+    void etagChecksDoNotQueryTheDatabase() {
+        AtomicBoolean databaseDown = new AtomicBoolean();
+        DataSource failing = new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (databaseDown.get()) throw new SQLTransientConnectionException("database down");
+                return super.getConnection();
+            }
+        };
+        CarRevisionRegistry registry = new CarRevisionRegistry(new CarRevisionRepository(failing), carRepository,
+                policyIntervalIndex, 1000);
+        registry.refresh();
+        String carTag = registry.carTag(2L);
+        String listTag = registry.carListTag();
+
+        databaseDown.set(true);
+        assertEquals(carTag, registry.carTag(2L));
+        assertEquals(listTag, registry.carListTag());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.carins.web;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the streaming exports
+ */
+@SpringBootTest
+class ExportControllerTests {
+
+    @Autowired
+    ExportController exportController;
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Test
+    void claimsExportAsCsvWithinTheDateRange() throws Exception {
+        ResponseEntity<?> response = exportController.exportClaims("2024-01-01", "2024-12-31", "csv", false);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("attachment; filename=\"claims.csv\"", response.getHeaders().getFirst("Content-Disposition"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+
+        assertEquals("claimId,carId,vin,claimDate,description,amount", lines.get(0));
+        assertTrue(lines.stream().anyMatch(line -> line.endsWith(",1,VIN12345,2024-02-15,Minor scratch,350.00")));
+        assertTrue(lines.stream().skip(1).allMatch(line -> line.split(",")[3].startsWith("2024-")));
+    }
+
+    @Test
+    void policiesExportAsGzippedNdjson() throws Exception {
+        ResponseEntity<?> response = exportController.exportPolicies("2025-09-30", "2025-09-30", "ndjson", true);
+        assertEquals("application/gzip", response.getHeaders().getContentType().toString());
+        assertEquals("attachment; filename=\"policies.ndjson.gz\"", response.getHeaders().getFirst("Content-Disposition"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        List<String> lines;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+
+        assertTrue(lines.size() >= 2);
+        assertTrue(lines.stream().allMatch(line -> line.contains("\"endDate\":\"2025-09-30\"")));
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"vin\":\"VIN67890\"")));
+
+        assertEquals(400, exportController.exportPolicies("2025-13-01", null, "csv", false).getStatusCode().value());
+        assertEquals(400, exportController.exportPolicies("2025-10-01", "2025-09-01", "csv", false).getStatusCode().value());
+        assertEquals(400, exportController.exportClaims(null, null, "xlsx", false).getStatusCode().value());
+    }
+
+    @Test
+    void exportToASlowClientIsNotCutOffByTheAsyncTimeout() throws Exception {
+        // the client takes 20 ms for every write the export makes
+        Filter slowClient = (request, response, chain) -> chain.doFilter(request, new HttpServletResponseWrapper((HttpServletResponse) response) {
+            @Override
+            public ServletOutputStream getOutputStream() throws IOException {
+                ServletOutputStream target = super.getOutputStream();
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[] {(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                        }
+                        target.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        target.setWriteListener(listener);
+                    }
+                };
+            }
+        });
+        MockMvc mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).addFilters(slowClient).build();
+
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get("/api/exports/claims").param("format", "ndjson"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        // the export timeout, rather than the 30 s MVC default, bounds the stream; it would also bound this wait
+        assertEquals(Duration.ofHours(1).toMillis(), started.getRequest().getAsyncContext().getTimeout());
+        started.getAsyncResult();
+
+        assertEquals(200, started.getResponse().getStatus());
+        String body = started.getResponse().getContentAsString();
+        assertTrue(body.lines().count() >= 3);
+        assertTrue(body.lines().allMatch(line -> line.startsWith("{\"claimId\":")));
+
+
+        // other streams keep the default async timeout
+        MvcResult history = mvc.perform(MockMvcRequestBuilders.get("/api/cars/1/history").param("stream", "true"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        assertNotEquals(Duration.ofHours(1).toMillis(), history.getRequest().getAsyncContext().getTimeout());
+        history.getAsyncResult();
+    }
+}
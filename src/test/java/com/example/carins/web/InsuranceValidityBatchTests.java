@@ -0,0 +1,58 @@
+package com.example.carins.web;
+
+import com.example.carins.web.dto.InsuranceValidityBatchDto;
+import com.example.carins.web.dto.ValidityCheckDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Validator;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the bulk insurance validity endpoint
+ */
+@SpringBootTest
+class InsuranceValidityBatchTests {
+
+    @Autowired
+    CarController carController;
+
+    @Autowired
+    private Validator validator;
+
+    @Test
+    void batchValidityAnswersDateListAndPairs() {
+        InsuranceValidityBatchDto batchDto = new InsuranceValidityBatchDto(LocalDate.parse("2025-06-01"), List.of(1L, 2L, 999L),
+                List.of(new ValidityCheckDto(2L, LocalDate.parse("2025-02-01"))));
+
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(batchDto, "insuranceValidityBatchDto");
+        validator.validate(batchDto, bindingResult);
+
+        ResponseEntity<?> response = carController.isInsuranceValidBatch(batchDto, bindingResult);
+
+        assertEquals(200, response.getStatusCode().value());
+        CarController.InsuranceValidityBatchResponse body = (CarController.InsuranceValidityBatchResponse) response.getBody();
+        assertEquals(List.of(
+                new CarController.InsuranceValidityResponse(1L, "2025-06-01", true),
+                new CarController.InsuranceValidityResponse(2L, "2025-06-01", true),
+                new CarController.InsuranceValidityResponse(2L, "2025-02-01", false)), body.results());
+        assertEquals(List.of(999L), body.unknownCarIds());
+    }
+
+    @Test
+    void batchValidityRequiresDateForCarIds() {
+        InsuranceValidityBatchDto batchDto = new InsuranceValidityBatchDto(null, List.of(1L), null);
+
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(batchDto, "insuranceValidityBatchDto");
+        validator.validate(batchDto, bindingResult);
+
+        ResponseEntity<?> response = carController.isInsuranceValidBatch(batchDto, bindingResult);
+        assertEquals(400, response.getStatusCode().value());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.carins.web;
+
+import com.example.carins.web.dto.OwnerCarDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the owner portfolio
+ */
+@SpringBootTest
+class OwnerPortfolioTests {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    OwnerController ownerController;
+
+    @Test
+    void ownerPortfolioListsCarsWithActivePolicyAndClaimTotals() {
+        ResponseEntity<?> response = ownerController.getPortfolio(1L, "2025-06-01", 0, 100);
+
+        assertEquals(200, response.getStatusCode().value());
+        OwnerController.OwnerPortfolioResponse body = (OwnerController.OwnerPortfolioResponse) response.getBody();
+        assertEquals("Ana Pop", body.name());
+        OwnerCarDto car = body.cars().get(0);
+        assertEquals(1L, car.id());
+        assertEquals("Groupama", car.activePolicy().provider());
+        assertTrue(car.claimCount() >= 2);
+
+        assertEquals(404, ownerController.getPortfolio(999L, null, 0, 100).getStatusCode().value());
+        assertEquals(400, ownerController.getPortfolio(1L, "2025-13-01", 0, 100).getStatusCode().value());
+        assertEquals(400, ownerController.getPortfolio(1L, null, 0, 0).getStatusCode().value());
+    }
+
+    @Test
+    void ownerPortfolioQueryCountDoesNotGrowWithCars() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        ownerController.getPortfolio(2L, "2025-06-01", 0, 1); // puts the owner in the second-level cache
+
+        long before = statistics.getPrepareStatementCount();
+        ResponseEntity<?> onePage = ownerController.getPortfolio(2L, "2025-06-01", 0, 1);
+        long forOneCar = statistics.getPrepareStatementCount() - before;
+
+        before = statistics.getPrepareStatementCount();
+        ResponseEntity<?> allCars = ownerController.getPortfolio(2L, "2025-06-01", 0, 100);
+        long forAllCars = statistics.getPrepareStatementCount() - before;
+
+        assertEquals(1, ((OwnerController.OwnerPortfolioResponse) onePage.getBody()).cars().size());
+        assertEquals("2", onePage.getHeaders().getFirst("X-Next-After"));
+        List<OwnerCarDto> cars = ((OwnerController.OwnerPortfolioResponse) allCars.getBody()).cars();
+        assertEquals(List.of(2L, 3L, 4L, 5L), cars.stream().map(OwnerCarDto::id).toList());
+        assertNull(cars.get(3).activePolicy());
+        assertEquals(forOneCar, forAllCars);
+    }
+}